@@ -0,0 +1,31 @@
+/*
+ * @author Eric M Evans
+ *
+ * a simulation step's Worker.BARRIERS_PER_STEP barriers and nothing else,
+ * for bench.Barriers, so the time is pure synchronization overhead.
+ */
+public class BarrierBench extends Bench {
+	
+	private final Barrier	barrier;
+	
+	
+	
+	public BarrierBench(String barrier, int n, int numWorkers) {
+		super(numWorkers);
+		
+		this.barrier = Barrier.create(barrier, numWorkers);
+		if (this.barrier == null)
+			throw new IllegalArgumentException("unknown barrier: " + barrier);
+	}
+	
+	
+	
+	@Override
+	public double step(int id) {
+		
+		for (int b = 0; b < Worker.BARRIERS_PER_STEP; b++)
+			barrier.await(id);
+		
+		return 0;
+	}
+}
@@ -0,0 +1,44 @@
+import java.util.Random;
+
+/*
+ * @author Eric M Evans
+ *
+ * a workload of the JMH benchmarks in package bench, run by a team of
+ * this many workers. see bench.Workload for why it lives here.
+ */
+public abstract class Bench implements bench.Workload {
+	
+	final int	numWorkers;
+	
+	
+	
+	Bench(int numWorkers) {
+		this.numWorkers = numWorkers;
+	}
+	
+	
+	
+	@Override
+	public int workers() {
+		
+		return numWorkers;
+	}
+	
+	
+	
+	/*
+	 * return a store of n bodies, with the given number of force rows,
+	 * scattered over the default field; the same bodies on every run
+	 */
+	static BodyStore scatter(int n, int rows) {
+		
+		final Random rng = new Random(n);
+		final BodyStore s = new BodyStore(n, rows);
+		
+		for (int i = 0; i < n; i++)
+			s.add(10 + rng.nextInt(90), 5, rng.nextDouble() * 10000,
+			        rng.nextDouble() * 10000, 0, 0);
+		
+		return s;
+	}
+}
@@ -0,0 +1,313 @@
+import java.awt.Point;
+
+/*
+ * @author Eric M Evans
+ *
+ * ways of storing the per-worker forces, for bench.ForceLayouts: a
+ * Point.Double per worker in every body, as Body once held them, one
+ * interleaved array laid out [body * workers + worker], and the contiguous
+ * per-worker rows of BodyStore with their reduction. a step of every
+ * layout is the same striped pair loop, a barrier, the net force sum over
+ * equal blocks of bodies, and a second barrier. Storage instead creates
+ * the layout, so what it allocates is the layout's size.
+ */
+public class ForceLayoutBench extends Bench {
+	
+	static final String			POINTS		= "points";
+	static final String			INTERLEAVED	= "interleaved";
+	static final String			ROWS		= "rows";
+	
+	private static final double	G			= 10000;
+	
+	private final Layout		forces;
+	private final Barrier		barrier;
+	
+	
+	
+	public ForceLayoutBench(String layout, int n, int numWorkers) {
+		super(numWorkers);
+		
+		forces = create(layout, scatter(n, numWorkers));
+		barrier = Barrier.create(Barrier.DISSEMINATION, numWorkers);
+	}
+	
+	
+	
+	@Override
+	public double step(int id) {
+		
+		final int from = forces.s.blockStart(id, numWorkers);
+		final int to = forces.s.blockStart(id + 1, numWorkers);
+		
+		forces.gravity(id);
+		barrier.await(id);
+		forces.reduce(from, to);
+		barrier.await(id);
+		
+		return forces.s.netX[0];
+	}
+	
+	
+	
+	/*
+	 * return the layout of the given name over s, with fresh storage
+	 */
+	private static Layout create(String name, BodyStore s) {
+		
+		switch (name) {
+			case POINTS:
+				return new Points(s);
+			case INTERLEAVED:
+				return new Interleaved(s);
+			case ROWS:
+				return new Rows(s);
+			default:
+				throw new IllegalArgumentException("unknown layout: " + name);
+		}
+	}
+	
+	
+	
+	/*
+	 * one thread creating a layout over the bodies for numWorkers workers,
+	 * again at every step
+	 */
+	public static class Storage extends Bench {
+		
+		private final String	layout;
+		private final BodyStore	s;
+		private Layout			last;
+		
+		
+		
+		public Storage(String layout, int n, int numWorkers) {
+			super(1);
+			
+			this.layout = layout;
+			s = scatter(n, numWorkers);
+			create(layout, s);
+		}
+		
+		
+		
+		@Override
+		public double step(int id) {
+			
+			last = create(layout, s);
+			
+			return last.s.size;
+		}
+	}
+	
+	
+	
+	/*
+	 * force storage for the bodies of s. the constructor allocates it
+	 */
+	private static abstract class Layout {
+		
+		final BodyStore	s;
+		final int		workers;	// one force row of s's each
+		
+		
+		
+		Layout(BodyStore s) {
+			this.s = s;
+			this.workers = s.numWorkers;
+		}
+		
+		
+		
+		/*
+		 * add the forces of the given worker's striped hero rows
+		 */
+		abstract void gravity(int worker);
+		
+		
+		
+		/*
+		 * sum bodies [from, to) into s.netX/netY and zero their forces
+		 */
+		abstract void reduce(int from, int to);
+	}
+	
+	
+	
+	/*
+	 * BodyStore's own rows, one contiguous array per worker
+	 */
+	private static class Rows extends Layout {
+		
+		Rows(BodyStore s) {
+			super(s);
+			s.allocateForces(s.size);
+		}
+		
+		
+		
+		@Override
+		void gravity(int worker) {
+			
+			ForceKernel.accumulate(s, worker, s.size, workers, worker, G);
+		}
+		
+		
+		
+		@Override
+		void reduce(int from, int to) {
+			
+			s.reduceForces(from, to);
+		}
+	}
+	
+	
+	
+	/*
+	 * one array per axis, the workers' slots of a body side by side
+	 */
+	private static class Interleaved extends Layout {
+		
+		private final double[]	forceX;
+		private final double[]	forceY;
+		
+		
+		
+		Interleaved(BodyStore s) {
+			super(s);
+			forceX = new double[s.size * workers];
+			forceY = new double[s.size * workers];
+		}
+		
+		
+		
+		@Override
+		void gravity(int worker) {
+			
+			final double[] px = s.px;
+			final double[] py = s.py;
+			final double[] mass = s.mass;
+			final int n = s.size;
+			
+			for (int i = worker; i < n; i += workers) {
+				double heroFX = forceX[i * workers + worker];
+				double heroFY = forceY[i * workers + worker];
+				
+				for (int k = i + 1; k < n; k++) {
+					final double directionX = px[k] - px[i];
+					final double directionY = py[k] - py[i];
+					final double distance = Math.sqrt(
+					        directionX * directionX + directionY * directionY);
+					final double magnitude = (G * mass[i] * mass[k])
+					        / (distance * distance);
+					
+					heroFX = heroFX + magnitude * directionX / distance;
+					heroFY = heroFY + magnitude * directionY / distance;
+					
+					forceX[k * workers + worker] -= magnitude * directionX
+					        / distance;
+					forceY[k * workers + worker] -= magnitude * directionY
+					        / distance;
+				}
+				
+				forceX[i * workers + worker] = heroFX;
+				forceY[i * workers + worker] = heroFY;
+			}
+		}
+		
+		
+		
+		@Override
+		void reduce(int from, int to) {
+			
+			for (int i = from; i < to; i++) {
+				double totalX = 0;
+				double totalY = 0;
+				
+				for (int w = 0; w < workers; w++) {
+					totalX = totalX + forceX[i * workers + w];
+					totalY = totalY + forceY[i * workers + w];
+					forceX[i * workers + w] = 0;
+					forceY[i * workers + w] = 0;
+				}
+				
+				s.netX[i] = totalX;
+				s.netY[i] = totalY;
+			}
+		}
+	}
+	
+	
+	
+	/*
+	 * a Point.Double per worker in every body, summed under the body's lock
+	 */
+	private static class Points extends Layout {
+		
+		private final Point.Double[][] forces;
+		
+		
+		
+		Points(BodyStore s) {
+			super(s);
+			forces = new Point.Double[s.size][workers];
+			for (Point.Double[] body : forces)
+				for (int w = 0; w < workers; w++)
+					body[w] = new Point.Double();
+		}
+		
+		
+		
+		@Override
+		void gravity(int worker) {
+			
+			final double[] px = s.px;
+			final double[] py = s.py;
+			final double[] mass = s.mass;
+			final int n = s.size;
+			
+			for (int i = worker; i < n; i += workers) {
+				final Point.Double hero = forces[i][worker];
+				
+				for (int k = i + 1; k < n; k++) {
+					final double directionX = px[k] - px[i];
+					final double directionY = py[k] - py[i];
+					final double distance = Math.sqrt(
+					        directionX * directionX + directionY * directionY);
+					final double magnitude = (G * mass[i] * mass[k])
+					        / (distance * distance);
+					
+					hero.x += magnitude * directionX / distance;
+					hero.y += magnitude * directionY / distance;
+					
+					forces[k][worker].x -= magnitude * directionX / distance;
+					forces[k][worker].y -= magnitude * directionY / distance;
+				}
+			}
+		}
+		
+		
+		
+		@Override
+		void reduce(int from, int to) {
+			
+			for (int i = from; i < to; i++) {
+				final Point.Double[] body = forces[i];
+				
+				synchronized (body) {
+					double totalX = 0;
+					double totalY = 0;
+					
+					for (Point.Double force : body) {
+						totalX = totalX + force.x;
+						totalY = totalY + force.y;
+						force.x = 0;
+						force.y = 0;
+					}
+					
+					s.netX[i] = totalX;
+					s.netY[i] = totalY;
+				}
+			}
+		}
+	}
+}
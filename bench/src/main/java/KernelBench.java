@@ -0,0 +1,71 @@
+/*
+ * @author Eric M Evans
+ *
+ * one gravity kernel alone, for bench.Kernels, on one thread, over all
+ * n (n - 1) / 2 pairs of n bodies, with the reduction that zeroes the row
+ * for the next pass. creating it checks that the kernel's forces agree
+ * with the scalar kernel's to within GravityKernel.TOLERANCE.
+ */
+public class KernelBench extends Bench {
+	
+	private static final double	G	= 10000;
+	
+	private final GravityKernel	kernel;
+	private final BodyStore		s;
+	
+	
+	
+	public KernelBench(String kernel, int n, int numWorkers) {
+		super(1);
+		
+		this.kernel = GravityKernel.create(kernel);
+		if (this.kernel == null)
+			throw new IllegalArgumentException("unknown kernel: " + kernel);
+		s = scatter(n, 1);
+		
+		GravityKernel.create(GravityKernel.SCALAR).accumulate(s, 0, n, 1, 0,
+		        G);
+		final double[] exactX = s.forceX[0].clone();
+		final double[] exactY = s.forceY[0].clone();
+		
+		s.reduceForces(0, n);
+		this.kernel.accumulate(s, 0, n, 1, 0, G);
+		final double diff = difference(s, exactX, exactY);
+		if (diff > GravityKernel.TOLERANCE)
+			throw new IllegalStateException(kernel + " kernel is off by "
+			        + diff + " of the largest force, over "
+			        + GravityKernel.TOLERANCE);
+	}
+	
+	
+	
+	@Override
+	public double step(int id) {
+		
+		s.reduceForces(0, s.size);
+		kernel.accumulate(s, 0, s.size, 1, 0, G);
+		
+		return s.forceX[0][0];
+	}
+	
+	
+	
+	/*
+	 * return the largest difference between the forces in row 0 of s and
+	 * the exact ones, over the largest exact force
+	 */
+	private static double difference(BodyStore s, double[] exactX,
+	        double[] exactY) {
+		
+		double maxDiff = 0;
+		double maxForce = 0;
+		
+		for (int i = 0; i < s.size; i++) {
+			maxDiff = Math.max(maxDiff, Math.hypot(s.forceX[0][i] - exactX[i],
+			        s.forceY[0][i] - exactY[i]));
+			maxForce = Math.max(maxForce, Math.hypot(exactX[i], exactY[i]));
+		}
+		
+		return maxDiff / maxForce;
+	}
+}
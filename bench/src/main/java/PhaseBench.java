@@ -0,0 +1,38 @@
+import java.util.Arrays;
+
+/*
+ * @author Eric M Evans
+ *
+ * one phase of a step on its own, for bench.Phases: the gravity pair loop
+ * and its reduction, the collision pass (broad phase, detection,
+ * gathering and resolution), the move or the barrier, on real workers
+ * over a real model.
+ */
+public class PhaseBench extends Bench {
+	
+	private final int		phase;
+	private final Worker[]	team;
+	
+	
+	
+	public PhaseBench(String phase, int n, int numWorkers) {
+		super(numWorkers);
+		
+		this.phase = Arrays.asList(StepMetrics.PHASES).indexOf(phase);
+		if (this.phase < 0)
+			throw new IllegalArgumentException("unknown phase: " + phase);
+		
+		final FreeBodies model = new FreeBodies(numWorkers, n, 50);
+		team = new Worker[numWorkers];
+		for (int w = 0; w < numWorkers; w++)
+			team[w] = new Worker(w, model);
+	}
+	
+	
+	
+	@Override
+	public double step(int id) {
+		
+		return team[id].runPhase(phase);
+	}
+}
@@ -0,0 +1,51 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/*
+ * @author Eric M Evans
+ *
+ * measures what each barrier costs per simulation step, at every worker
+ * count the simulation accepts. see BarrierBench.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Barriers extends Team {
+	
+	@Param({ "dissemination", "central", "tournament", "phaser", "spinpark" })
+	public String	barrier;
+	
+	@Param({ "1", "2", "4", "8", "16", "32" })
+	public int		workers;
+	
+	
+	
+	@Setup(Level.Trial)
+	public void setUp() {
+		
+		start(Workload.load("BarrierBench", barrier, 0, workers));
+	}
+	
+	
+	
+	@Benchmark
+	public void step(Blackhole bh) {
+		
+		bh.consume(step());
+	}
+}
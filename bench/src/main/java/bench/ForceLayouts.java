@@ -0,0 +1,85 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/*
+ * @author Eric M Evans
+ *
+ * compares ways of storing the per-worker forces, by default at 32
+ * workers: step times a step of the layout, and storage creates one, so
+ * its gc.alloc.rate.norm under -prof gc is the layout's size. see
+ * ForceLayoutBench.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ForceLayouts {
+	
+	/*
+	 * a layout of n bodies' forces for the given number of workers
+	 */
+	public abstract static class Layout extends Team {
+		
+		@Param({ "points", "interleaved", "rows" })
+		public String	layout;
+		
+		@Param({ "1000", "4000" })
+		public int		n;
+		
+		@Param({ "32" })
+		public int		workers;
+	}
+	
+	
+	
+	public static class Steps extends Layout {
+		
+		@Setup(Level.Trial)
+		public void setUp() {
+			
+			start(Workload.load("ForceLayoutBench", layout, n, workers));
+		}
+	}
+	
+	
+	
+	public static class Storage extends Layout {
+		
+		@Setup(Level.Trial)
+		public void setUp() {
+			
+			start(Workload.load("ForceLayoutBench$Storage", layout, n,
+			        workers));
+		}
+	}
+	
+	
+	
+	@Benchmark
+	public void step(Steps team, Blackhole bh) {
+		
+		bh.consume(team.step());
+	}
+	
+	
+	
+	@Benchmark
+	public void storage(Storage team, Blackhole bh) {
+		
+		bh.consume(team.step());
+	}
+}
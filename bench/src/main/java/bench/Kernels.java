@@ -0,0 +1,83 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/*
+ * @author Eric M Evans
+ *
+ * measures each gravity kernel alone, on one thread, over every pair of n
+ * bodies, in pair interactions per second: the interactions counter. the
+ * primary score is passes over all the pairs per second. setup fails if
+ * the kernel disagrees with the scalar one. the forks run with the vector
+ * module, so the vector kernel is the real one. see KernelBench.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+public class Kernels extends Team {
+	
+	@Param({ "scalar", "vector" })
+	public String	kernel;
+	
+	@Param({ "1000", "4000", "16000" })
+	public int		n;
+	
+	
+	
+	private long	pairs;
+	
+	
+	
+	/*
+	 * pair interactions figured, reported per second
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Interactions {
+		
+		public long interactions;
+		
+		
+		
+		@Setup(Level.Iteration)
+		public void clear() {
+			
+			interactions = 0;
+		}
+	}
+	
+	
+	
+	@Setup(Level.Trial)
+	public void setUp() {
+		
+		pairs = (long) n * (n - 1) / 2;
+		start(Workload.load("KernelBench", kernel, n, 1));
+	}
+	
+	
+	
+	@Benchmark
+	public void pairs(Interactions counted, Blackhole bh) {
+		
+		bh.consume(step());
+		counted.interactions += pairs;
+	}
+}
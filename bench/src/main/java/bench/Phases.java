@@ -0,0 +1,55 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/*
+ * @author Eric M Evans
+ *
+ * times each phase of a step on its own, the gravity pair loop with its
+ * reduction, the collision pass, the move and the barrier, at several body
+ * and worker counts. see PhaseBench.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Phases extends Team {
+	
+	@Param({ "gravity", "collisions", "move", "barrier" })
+	public String	phase;
+	
+	@Param({ "250", "1000", "4000" })
+	public int		n;
+	
+	@Param({ "1", "4", "16" })
+	public int		workers;
+	
+	
+	
+	@Setup(Level.Trial)
+	public void setUp() {
+		
+		start(Workload.load("PhaseBench", phase, n, workers));
+	}
+	
+	
+	
+	@Benchmark
+	public void phase(Blackhole bh) {
+		
+		bh.consume(step());
+	}
+}
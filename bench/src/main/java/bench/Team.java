@@ -0,0 +1,82 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/*
+ * @author Eric M Evans
+ *
+ * a team of workers that step a workload in lockstep. the JMH thread is
+ * worker 0 and times its own steps; helper threads, started once per
+ * trial, are workers 1 up and step for as long as the trial lasts. every
+ * step ends at a barrier, so no helper is ever more than one step ahead
+ * of worker 0, and a step of worker 0 takes as long as the slowest
+ * worker's. to finish, worker 0 names its last step and takes it, and
+ * every helper stops after that same step.
+ */
+@State(Scope.Benchmark)
+public abstract class Team {
+	
+	Workload					work;
+	private Thread[]			helpers	= new Thread[0];
+	private long				steps;		// by worker 0
+	private volatile long		last;
+	
+	
+	
+	/*
+	 * start workers 1 up on the given workload
+	 */
+	void start(Workload work) {
+		
+		this.work = work;
+		steps = 0;
+		last = Long.MAX_VALUE;
+		helpers = new Thread[work.workers() - 1];
+		
+		for (int w = 1; w < work.workers(); w++) {
+			final int id = w;
+			helpers[w - 1] = new Thread("worker " + id) {
+				
+				@Override
+				public void run() {
+					
+					for (long s = 0; s < last; s++)
+						work.step(id);
+				}
+			};
+			helpers[w - 1].setDaemon(true);
+			helpers[w - 1].start();
+		}
+	}
+	
+	
+	
+	/*
+	 * take one step as worker 0
+	 */
+	double step() {
+		
+		steps++;
+		
+		return work.step(0);
+	}
+	
+	
+	
+	/*
+	 * take one last step, which any helper waiting in it needs, and join
+	 * the helpers
+	 */
+	@TearDown(Level.Trial)
+	public void stop() throws InterruptedException {
+		
+		last = steps + 1;
+		step();
+		
+		for (Thread t : helpers)
+			t.join();
+	}
+}
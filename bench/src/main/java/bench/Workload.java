@@ -0,0 +1,43 @@
+package bench;
+
+/*
+ * @author Eric M Evans
+ *
+ * the part of a benchmark that runs the simulation's own code. JMH wants
+ * its benchmarks in a named package, and the simulation lives in the
+ * default one, which no named package can see; so each workload is a
+ * class of the default package, implementing this, loaded by name.
+ */
+public interface Workload {
+	
+	/*
+	 * return the number of workers, 0 included
+	 */
+	int workers();
+	
+	
+	
+	/*
+	 * take one step as the given worker, ending at a barrier of all, and
+	 * return a value the step computed, for the benchmark to consume
+	 */
+	double step(int id);
+	
+	
+	
+	/*
+	 * return the workload of the given class, built with its variant, body
+	 * count and worker count
+	 */
+	static Workload load(String name, String variant, int n, int workers) {
+		
+		try {
+			return (Workload) Class.forName(name)
+			        .getConstructor(String.class, int.class, int.class)
+			        .newInstance(variant, n, workers);
+		}
+		catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("no workload " + name, e);
+		}
+	}
+}
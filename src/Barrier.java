@@ -0,0 +1,49 @@
+/*
+ * @author Eric M Evans
+ * 
+ * barrier for a fixed group of worker threads. each worker passes its own
+ * ID, 0 to parties - 1, and no worker returns from await until every
+ * worker has called it.
+ */
+public interface Barrier {
+	
+	// names accepted by create
+	static final String	DISSEMINATION	= "dissemination";
+	static final String	CENTRAL			= "central";
+	static final String	TOURNAMENT		= "tournament";
+	static final String	PHASER			= "phaser";
+	static final String	SPINPARK		= "spinpark";
+	
+	static final String[] NAMES = { DISSEMINATION, CENTRAL, TOURNAMENT, PHASER,
+	        SPINPARK };
+	
+	
+	
+	/*
+	 * wait for every other worker
+	 */
+	void await(int id);
+	
+	
+	
+	/*
+	 * return barrier of the given name, or null if there is none
+	 */
+	static Barrier create(String name, int parties) {
+		
+		switch (name) {
+			case DISSEMINATION:
+				return new DisseminationBarrier(parties);
+			case CENTRAL:
+				return new CentralBarrier(parties);
+			case TOURNAMENT:
+				return new TournamentBarrier(parties);
+			case PHASER:
+				return new PhaserBarrier(parties);
+			case SPINPARK:
+				return new SpinParkBarrier(parties);
+			default:
+				return null;
+		}
+	}
+}
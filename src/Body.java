@@ -1,45 +1,101 @@
 
 import java.awt.Color;
 import java.awt.Point;
-import java.awt.geom.Point2D.Double;
 
 /*
  * @author Eric M Evans
  * 
  * Circular free-body of uniform density, point mass.
+ * 
+ * thin view onto one slot of a BodyStore. a new Body owns a private
+ * single-slot store until FreeBodies attaches it to the shared one.
  */
 
 public class Body {
 	
-	private double			mass;
-	private double			radius;
-	private Point.Double	velocity;
-	private Point.Double	position;
-	// private Point.Double force;
-	private double			epsilon		= -1;
-	private Color			color;
-	private int				ID;
-	private Point.Double[]	forces;
-	private int				lastStep	= -1;
-	private Double			predicted;
+	private BodyStore	store;
+	private int			index;
+	private double		epsilon	= -1;
+	private Color		color;
+	private int			ID;
 	
 	
 	
 	public Body(int mass, double radius, Point.Double velocity,
 	        Point.Double position, int id, int numWorkers) {
 		
+		this.store = new BodyStore(1, numWorkers);
+		this.index = store.add(1, 1, 0, 0, 0, 0);
+		
 		this.setMass(mass);
 		this.setRadius(radius);
 		this.setVelocity(velocity);
 		this.setPosition(position);
-		// this.force = new Point.Double(0.0, 0.0);
 		
 		this.color = FreeBodies.getRandomColor();
 		this.ID = id;
+	}
+	
+	
+	
+	/*
+	 * view a slot of a store that already holds the body's values
+	 */
+	Body(BodyStore store, int index, int id) {
+		
+		this.store = store;
+		this.index = index;
+		this.color = FreeBodies.getRandomColor();
+		this.ID = id;
+	}
+	
+	
+	
+	/*
+	 * move this body's values into a slot of the given store and view that
+	 * slot from now on
+	 */
+	void attach(BodyStore target) {
+		
+		this.index = target.add(getMass(), getRadius(), store.px[index],
+		        store.py[index], store.vx[index], store.vy[index]);
+		this.store = target;
+	}
+	
+	
+	
+	/*
+	 * copy this body's values back into a private store, so the view stays
+	 * valid once its shared slot is removed
+	 */
+	void detach() {
+		
+		BodyStore own = new BodyStore(1, store.numWorkers);
+		own.add(getMass(), getRadius(), store.px[index], store.py[index],
+		        store.vx[index], store.vy[index]);
+		
+		this.store = own;
+		this.index = 0;
+	}
+	
+	
+	
+	/*
+	 * setter. called when an earlier slot of the store is removed
+	 */
+	void setIndex(int index) {
+		
+		this.index = index;
+	}
+	
+	
+	
+	/*
+	 * getter
+	 */
+	int getIndex() {
 		
-		this.forces = new Point.Double[numWorkers];
-		for (int i = 0; i < numWorkers; i++)
-			forces[i] = new Point.Double(0, 0);
+		return this.index;
 	}
 	
 	
@@ -49,7 +105,7 @@ public class Body {
 	 */
 	public double getMass() {
 		
-		return this.mass;
+		return store.mass[index];
 	}
 	
 	
@@ -62,7 +118,7 @@ public class Body {
 		if (mass < 1)
 			mass = 1;
 		
-		this.mass = mass;
+		store.mass[index] = mass;
 	}
 	
 	
@@ -72,7 +128,7 @@ public class Body {
 	 */
 	public double getRadius() {
 		
-		return this.radius;
+		return store.radius[index];
 	}
 	
 	
@@ -85,7 +141,7 @@ public class Body {
 		if (radius < 1)
 			radius = 1;
 		
-		this.radius = radius;
+		store.radius[index] = radius;
 	}
 	
 	
@@ -95,7 +151,7 @@ public class Body {
 	 */
 	public Point.Double getVelocity() {
 		
-		return this.velocity;
+		return new Point.Double(store.vx[index], store.vy[index]);
 	}
 	
 	
@@ -108,13 +164,7 @@ public class Body {
 		if (velocity == null)
 			velocity = new Point.Double(0, 0);
 		
-		if (velocity.x == 0)
-			velocity.setLocation(0.00001, velocity.y);
-		
-		if (velocity.y == 0)
-			velocity.setLocation(velocity.x, 0.00001);
-		
-		this.velocity = velocity;
+		store.setVelocity(index, velocity.x, velocity.y);
 	}
 	
 	
@@ -124,8 +174,10 @@ public class Body {
 	 */
 	public double getSpeed() {
 		
-		return Math.sqrt((this.velocity.x) * (this.velocity.x)
-		        + (this.velocity.y) * (this.velocity.y));
+		final double vX = store.vx[index];
+		final double vY = store.vy[index];
+		
+		return Math.sqrt(vX * vX + vY * vY);
 	}
 	
 	
@@ -135,7 +187,7 @@ public class Body {
 	 */
 	public Point.Double getPosition() {
 		
-		return this.position;
+		return new Point.Double(store.px[index], store.py[index]);
 	}
 	
 	
@@ -148,42 +200,18 @@ public class Body {
 		if (position == null)
 			position = new Point.Double(0, 0);
 		
-		this.position = position;
-	}
-	
-	
-	
-	/*
-	 * getter
-	 */
-	public Point.Double getForce(int row) {
-		
-		return this.forces[row];
-	}
-	
-	
-	
-	/*
-	 * setter
-	 */
-	public void setForce(int row, Point.Double force) {
-		
-		this.forces[row] = force;
+		store.px[index] = position.x;
+		store.py[index] = position.y;
 	}
 	
 	
 	
 	/*
-	 * return total force
+	 * return total force of the last step
 	 */
-	public synchronized Point.Double getNetForce() {
+	public Point.Double getNetForce() {
 		
-		Point.Double total = new Point.Double(0, 0);
-		
-		for (Point.Double f : forces)
-			total.setLocation(total.x + f.x, total.y + f.y);
-		
-		return total;
+		return new Point.Double(store.netX[index], store.netY[index]);
 	}
 	
 	
@@ -191,30 +219,9 @@ public class Body {
 	/*
 	 * resetter
 	 */
-	public synchronized void zeroOutForces() {
-		
-		for (Point.Double f : forces)
-			f.setLocation(0, 0);
-		
-	}
-	
-	
-	
-	/*
-	 * returns predicted next location
-	 */
-	private Point.Double getPredictedNext(double fps, int step) {
-		
-		if (step == lastStep && step != -1) // -1: sentinel value
-			return predicted;
-		
-		lastStep = step;
-		
-		predicted = new Point.Double(
-		        this.position.x + this.velocity.x * 1.5 / fps,
-		        this.position.y + this.velocity.y * 1.5 / fps);
+	public void zeroOutForces() {
 		
-		return predicted;
+		store.zeroOutForces(index);
 	}
 	
 	
@@ -222,18 +229,22 @@ public class Body {
 	/*
 	 * returns true if this and rival intersect
 	 */
-	public boolean doIntersect(Body rival, double fps, int step) {
+	public boolean doIntersect(Body rival, double fps) {
 		
-		final double thisNextX = this.getPredictedNext(fps, step).x;
-		final double thisNextY = this.getPredictedNext(fps, step).y;
-		final double rivalNextX = rival.getPredictedNext(fps, step).x;
-		final double rivalNextY = rival.getPredictedNext(fps, step).y;
+		final double thisNextX = this.store.px[this.index]
+		        + this.store.vx[this.index] * 1.5 / fps;
+		final double thisNextY = this.store.py[this.index]
+		        + this.store.vy[this.index] * 1.5 / fps;
+		final double rivalNextX = rival.store.px[rival.index]
+		        + rival.store.vx[rival.index] * 1.5 / fps;
+		final double rivalNextY = rival.store.py[rival.index]
+		        + rival.store.vy[rival.index] * 1.5 / fps;
 		
 		final double distCenters = Math
 		        .sqrt((thisNextX - rivalNextX) * (thisNextX - rivalNextX)
 		                + (thisNextY - rivalNextY) * (thisNextY - rivalNextY));
 		
-		final double radiiSum = this.radius + rival.radius;
+		final double radiiSum = this.getRadius() + rival.getRadius();
 		
 		return distCenters - radiiSum <= epsilon;
 	}
@@ -265,7 +276,7 @@ public class Body {
 	 */
 	public int leftBound() {
 		
-		return (int) (this.getPosition().x - radius);
+		return (int) (store.px[index] - getRadius());
 	}
 	
 	
@@ -275,7 +286,7 @@ public class Body {
 	 */
 	public int rightBound() {
 		
-		return (int) (this.getPosition().x + radius);
+		return (int) (store.px[index] + getRadius());
 	}
 	
 	
@@ -285,7 +296,7 @@ public class Body {
 	 */
 	public synchronized void reverseXVelocity() {
 		
-		this.setVelocity(new Point.Double(-velocity.x, velocity.y));
+		store.setVelocity(index, -store.vx[index], store.vy[index]);
 	}
 	
 	
@@ -295,7 +306,7 @@ public class Body {
 	 */
 	public int upperBound() {
 		
-		return (int) (this.getPosition().y - radius);
+		return (int) (store.py[index] - getRadius());
 	}
 	
 	
@@ -305,7 +316,7 @@ public class Body {
 	 */
 	public int lowerBound() {
 		
-		return (int) (this.getPosition().y + radius);
+		return (int) (store.py[index] + getRadius());
 	}
 	
 	
@@ -315,7 +326,7 @@ public class Body {
 	 */
 	public synchronized void reverseYVelocity() {
 		
-		this.setVelocity(new Point.Double(velocity.x, -velocity.y));
+		store.setVelocity(index, store.vx[index], -store.vy[index]);
 	}
 	
 }
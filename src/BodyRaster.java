@@ -0,0 +1,166 @@
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/*
+ * @author Eric M Evans
+ *
+ * draws bodies straight into the int pixels of an image, for fields too
+ * large to paint one antialiased oval at a time. the image is cut into
+ * bands of rows. one pass lists, for each band, the bodies reaching into
+ * it, leaving out those out of view; then the bands are filled in
+ * parallel, each writing only its own rows, so no two threads touch the
+ * same pixel. a body smaller than a pixel is drawn as one; larger ones as
+ * discs, row by row.
+ */
+public class BodyRaster {
+	
+	private static final int	BAND_ROWS	= 16;
+	
+	private BufferedImage		image;
+	private int[]				pixels;
+	private int[]				rgb			= new int[0];
+	private int[]				start		= new int[1];	// per band
+	private int[]				members		= new int[0];	// by band
+	
+	
+	
+	/*
+	 * return the image of count bodies, centres x and y, drawn over the
+	 * background. the image is reused while the size stays the same
+	 */
+	BufferedImage draw(final int width, final int height, Color background,
+	        final double[] x, final double[] y, final double[] radius,
+	        Color[] color, final int count) {
+		
+		if (image == null || image.getWidth() != width
+		        || image.getHeight() != height) {
+			image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+			pixels = ((DataBufferInt) image.getRaster().getDataBuffer())
+			        .getData();
+		}
+		
+		if (rgb.length < count)
+			rgb = new int[x.length];
+		for (int i = 0; i < count; i++)
+			rgb[i] = color[i].getRGB();
+		
+		final int back = background.getRGB();
+		final int bands = (height + BAND_ROWS - 1) / BAND_ROWS;
+		list(width, height, bands, x, y, radius, count);
+		
+		IntStream.range(0, bands).parallel().forEach(b -> {
+			final int top = b * BAND_ROWS;
+			final int bottom = Math.min(height, top + BAND_ROWS);
+			
+			Arrays.fill(pixels, top * width, bottom * width, back);
+			
+			for (int k = start[b]; k < start[b + 1]; k++) {
+				final int i = members[k];
+				fill(x[i], y[i], radius[i], rgb[i], top, bottom, width);
+			}
+		});
+		
+		return image;
+	}
+	
+	
+	
+	/*
+	 * list the bodies in view by the bands they reach into: band b's are
+	 * members[start[b]] up to members[start[b + 1]]
+	 */
+	private void list(int width, int height, int bands, double[] x,
+	        double[] y, double[] radius, int count) {
+		
+		if (start.length < bands + 1)
+			start = new int[bands + 1];
+		Arrays.fill(start, 0, bands + 1, 0);
+		
+		// count each band's bodies, then turn counts into ends
+		long total = 0;
+		for (int i = 0; i < count; i++) {
+			final double r = radius[i];
+			if (x[i] + r < 0 || x[i] - r >= width || y[i] + r < 0
+			        || y[i] - r >= height)
+				continue;
+			final int first = first(y[i], r);
+			final int last = last(y[i], r, bands);
+			for (int b = first; b <= last; b++)
+				start[b + 1]++;
+			total += last - first + 1;
+		}
+		for (int b = 0; b < bands; b++)
+			start[b + 1] += start[b];
+		
+		if (members.length < total)
+			members = new int[(int) Math.min(Integer.MAX_VALUE - 8,
+			        Math.max(total, 2L * members.length))];
+		
+		// then place them, moving each band's start to its end and back
+		for (int i = 0; i < count; i++) {
+			final double r = radius[i];
+			if (x[i] + r < 0 || x[i] - r >= width || y[i] + r < 0
+			        || y[i] - r >= height)
+				continue;
+			final int last = last(y[i], r, bands);
+			for (int b = first(y[i], r); b <= last; b++)
+				members[start[b]++] = i;
+		}
+		for (int b = bands; b > 0; b--)
+			start[b] = start[b - 1];
+		start[0] = 0;
+	}
+	
+	
+	
+	private static int first(double y, double r) {
+		
+		return Math.max(0, (int) (y - r) / BAND_ROWS);
+	}
+	
+	
+	
+	private static int last(double y, double r, int bands) {
+		
+		return Math.min(bands - 1, (int) (y + r) / BAND_ROWS);
+	}
+	
+	
+	
+	/*
+	 * fill the rows [top, bottom) of a disc, clipped to the image
+	 */
+	private void fill(double cx, double cy, double r, int rgb, int top,
+	        int bottom, int width) {
+		
+		if (cy + r < top || cy - r >= bottom || cx + r < 0 || cx - r >= width)
+			return;
+		
+		// level of detail: a pixel for anything no wider than one
+		if (r < 1) {
+			final int px = (int) cx;
+			final int py = (int) cy;
+			if (py >= top && py < bottom && px >= 0 && px < width)
+				pixels[py * width + px] = rgb;
+			return;
+		}
+		
+		final int from = Math.max(top, (int) Math.ceil(cy - r - 0.5));
+		final int to = Math.min(bottom - 1, (int) Math.floor(cy + r - 0.5));
+		final double rr = r * r;
+		
+		for (int row = from; row <= to; row++) {
+			final double dy = row + 0.5 - cy;
+			final double half = Math.sqrt(Math.max(0, rr - dy * dy));
+			final int left = Math.max(0, (int) Math.ceil(cx - half - 0.5));
+			final int right = Math.min(width - 1,
+			        (int) Math.floor(cx + half - 0.5));
+			final int at = row * width;
+			for (int col = left; col <= right; col++)
+				pixels[at + col] = rgb;
+		}
+	}
+}
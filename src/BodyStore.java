@@ -0,0 +1,259 @@
+import java.util.Arrays;
+
+/*
+ * @author Eric M Evans
+ *
+ * structure-of-arrays storage for every body in the simulation. the workers
+ * index the primitive arrays directly; Body is a thin view onto one slot.
+ * slot order always matches the order of FreeBodies.bodies.
+ */
+public class BodyStore {
+	
+	double[]	px;
+	double[]	py;
+	double[]	vx;
+	double[]	vy;
+	double[]	mass;
+	double[]	radius;
+	
+	// next-step positions and velocities, written by the fused step while
+	// the arrays above are still being read
+	double[]	pxBack;
+	double[]	pyBack;
+	double[]	vxBack;
+	double[]	vyBack;
+	
+	// one contiguous force row per worker, indexed by body. a worker only
+	// ever writes its own row, so workers never share a cache line
+	double[][]	forceX;
+	double[][]	forceY;
+	
+	// rows summed by reduceForces, read when moving bodies
+	double[]	netX;
+	double[]	netY;
+	
+	int			size		= 0;
+	final int	numWorkers;
+	
+	// doubles past the end of each row, so one row's tail and the next
+	// row's header never share a cache line
+	private static final int	ROW_PAD	= 8;
+	
+	
+	
+	public BodyStore(int capacity, int numWorkers) {
+		
+		if (capacity < 1)
+			capacity = 1;
+		
+		this.numWorkers = numWorkers;
+		
+		px = new double[capacity];
+		py = new double[capacity];
+		vx = new double[capacity];
+		vy = new double[capacity];
+		mass = new double[capacity];
+		radius = new double[capacity];
+		pxBack = new double[capacity];
+		pyBack = new double[capacity];
+		vxBack = new double[capacity];
+		vyBack = new double[capacity];
+		allocateForces(capacity);
+	}
+	
+	
+	
+	/*
+	 * (re)create zeroed force rows and net forces for capacity bodies
+	 */
+	void allocateForces(int capacity) {
+		
+		forceX = new double[numWorkers][capacity + ROW_PAD];
+		forceY = new double[numWorkers][capacity + ROW_PAD];
+		netX = new double[capacity];
+		netY = new double[capacity];
+	}
+	
+	
+	
+	/*
+	 * append a body, return its slot
+	 */
+	int add(double m, double r, double x, double y, double velX,
+	        double velY) {
+		
+		if (size == px.length)
+			grow(2 * size);
+		
+		final int i = size++;
+		
+		mass[i] = m;
+		radius[i] = r;
+		px[i] = x;
+		py[i] = y;
+		setVelocity(i, velX, velY);
+		zeroOutForces(i);
+		
+		return i;
+	}
+	
+	
+	
+	/*
+	 * remove slot i, shifting every later body down by one
+	 */
+	void remove(int i) {
+		
+		final int tail = size - i - 1;
+		
+		System.arraycopy(px, i + 1, px, i, tail);
+		System.arraycopy(py, i + 1, py, i, tail);
+		System.arraycopy(vx, i + 1, vx, i, tail);
+		System.arraycopy(vy, i + 1, vy, i, tail);
+		System.arraycopy(mass, i + 1, mass, i, tail);
+		System.arraycopy(radius, i + 1, radius, i, tail);
+		System.arraycopy(netX, i + 1, netX, i, tail);
+		System.arraycopy(netY, i + 1, netY, i, tail);
+		for (int w = 0; w < numWorkers; w++) {
+			System.arraycopy(forceX[w], i + 1, forceX[w], i, tail);
+			System.arraycopy(forceY[w], i + 1, forceY[w], i, tail);
+		}
+		
+		size--;
+	}
+	
+	
+	
+	/*
+	 * enlarge every array to hold capacity bodies
+	 */
+	private void grow(int capacity) {
+		
+		px = Arrays.copyOf(px, capacity);
+		py = Arrays.copyOf(py, capacity);
+		vx = Arrays.copyOf(vx, capacity);
+		vy = Arrays.copyOf(vy, capacity);
+		mass = Arrays.copyOf(mass, capacity);
+		radius = Arrays.copyOf(radius, capacity);
+		pxBack = new double[capacity];
+		pyBack = new double[capacity];
+		vxBack = new double[capacity];
+		vyBack = new double[capacity];
+		netX = Arrays.copyOf(netX, capacity);
+		netY = Arrays.copyOf(netY, capacity);
+		for (int w = 0; w < numWorkers; w++) {
+			forceX[w] = Arrays.copyOf(forceX[w], capacity + ROW_PAD);
+			forceY[w] = Arrays.copyOf(forceY[w], capacity + ROW_PAD);
+		}
+	}
+	
+	
+	
+	/*
+	 * setter. a zero component is nudged off zero, as Body always has
+	 */
+	void setVelocity(int i, double x, double y) {
+		
+		vx[i] = nudge(x);
+		vy[i] = nudge(y);
+	}
+	
+	
+	
+	/*
+	 * return velocity component v, nudged off zero
+	 */
+	static double nudge(double v) {
+		
+		return (v == 0) ? 0.00001 : v;
+	}
+	
+	
+	
+	/*
+	 * make the back buffers current. the old current arrays become the
+	 * back buffers for the next step
+	 */
+	void swap() {
+		
+		double[] t;
+		
+		t = px;
+		px = pxBack;
+		pxBack = t;
+		
+		t = py;
+		py = pyBack;
+		pyBack = t;
+		
+		t = vx;
+		vx = vxBack;
+		vxBack = t;
+		
+		t = vy;
+		vy = vyBack;
+		vyBack = t;
+	}
+	
+	
+	
+	/*
+	 * sum the worker rows into netX/netY for bodies [from, to), zeroing the
+	 * rows for the next step. rows are walked one after another, so every
+	 * pass streams through contiguous memory; rows are added in worker
+	 * order, as a per-body sum would
+	 */
+	void reduceForces(int from, int to) {
+		
+		Arrays.fill(netX, from, to, 0);
+		Arrays.fill(netY, from, to, 0);
+		
+		for (int w = 0; w < numWorkers; w++) {
+			final double[] rowX = forceX[w];
+			final double[] rowY = forceY[w];
+			
+			for (int i = from; i < to; i++) {
+				netX[i] = netX[i] + rowX[i];
+				netY[i] = netY[i] + rowY[i];
+				rowX[i] = 0;
+				rowY[i] = 0;
+			}
+		}
+	}
+	
+	
+	
+	/*
+	 * return first body of `part` out of `parts` contiguous blocks of equal
+	 * size, the share of the bodies a worker reduces and moves
+	 */
+	int blockStart(int part, int parts) {
+		
+		return (int) ((long) size * part / parts);
+	}
+	
+	
+	
+	/*
+	 * resetter
+	 */
+	void zeroOutForces(int i) {
+		
+		netX[i] = 0;
+		netY[i] = 0;
+		for (int w = 0; w < numWorkers; w++) {
+			forceX[w][i] = 0;
+			forceY[w][i] = 0;
+		}
+	}
+	
+	
+	
+	/*
+	 * getter
+	 */
+	public int size() {
+		
+		return this.size;
+	}
+}
@@ -0,0 +1,44 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * @author Eric M Evans
+ * 
+ * sense-reversing centralized barrier. every worker decrements one shared
+ * counter; the last to arrive resets it and flips the shared sense, which
+ * the others busy-wait on. waiters yield, so more workers than cores
+ * still make progress.
+ */
+public class CentralBarrier implements Barrier {
+	
+	private final int			parties;
+	private final AtomicInteger	count;
+	private volatile boolean	sense		= false;
+	private final boolean[]		localSense;
+	
+	
+	
+	public CentralBarrier(int parties) {
+		
+		this.parties = parties;
+		this.count = new AtomicInteger(parties);
+		this.localSense = new boolean[parties];
+	}
+	
+	
+	
+	@Override
+	public void await(int id) {
+		
+		final boolean mySense = !localSense[id];
+		localSense[id] = mySense;
+		
+		if (count.decrementAndGet() == 0) {
+			count.set(parties);
+			sense = mySense;
+			return;
+		}
+		
+		while (sense != mySense)
+			Thread.yield();
+	}
+}
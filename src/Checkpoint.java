@@ -0,0 +1,195 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Random;
+
+/*
+ * @author Eric M Evans
+ *
+ * everything a run needs to go on from the end of a step: every body,
+ * the steps taken, the constants, walls and switches of the model, the
+ * placement RNG, serialized when the snapshot is filled, and the
+ * collision count. a snapshot is filled by
+ * FreeBodies and saved to, or read from, a binary file:
+ *
+ * magic "FBCKPT01", step (long), collisions (int), G, fps (double),
+ * left, right, top and bottom walls (int), gravity, walls (boolean), the
+ * serialized RNG (int length, bytes), bodies N (int), then N ids (int)
+ * and N each of mass, radius, px, py, vx, vy (double). big-endian.
+ */
+public class Checkpoint {
+	
+	static final String	MAGIC	= "FBCKPT01";
+	
+	long				step;
+	int					collisions;
+	double				G;
+	double				fps;
+	int					leftWall, rightWall, topWall, bottomWall;
+	boolean				gravity;
+	boolean				walls;
+	byte[]				placement;	// the RNG, serialized
+	
+	int					size;
+	int[]				ids		= new int[0];
+	double[]			mass	= new double[0];
+	double[]			radius	= new double[0];
+	double[]			px		= new double[0];
+	double[]			py		= new double[0];
+	double[]			vx		= new double[0];
+	double[]			vy		= new double[0];
+	
+	
+	
+	/*
+	 * make room for n bodies; grows only
+	 */
+	void ensure(int n) {
+		
+		if (ids.length >= n)
+			return;
+		
+		ids = new int[n];
+		mass = new double[n];
+		radius = new double[n];
+		px = new double[n];
+		py = new double[n];
+		vx = new double[n];
+		vy = new double[n];
+	}
+	
+	
+	
+	/*
+	 * save to a file next to name, then move it over name, so a crash
+	 * mid-write leaves the last checkpoint whole
+	 */
+	void save(String name) throws IOException {
+		
+		final String partial = name + ".part";
+		DataOutputStream out = new DataOutputStream(
+		        new BufferedOutputStream(new FileOutputStream(partial), 1 << 16));
+		
+		out.writeBytes(MAGIC);
+		out.writeLong(step);
+		out.writeInt(collisions);
+		out.writeDouble(G);
+		out.writeDouble(fps);
+		out.writeInt(leftWall);
+		out.writeInt(rightWall);
+		out.writeInt(topWall);
+		out.writeInt(bottomWall);
+		out.writeBoolean(gravity);
+		out.writeBoolean(walls);
+		
+		out.writeInt(placement.length);
+		out.write(placement);
+		
+		out.writeInt(size);
+		for (int i = 0; i < size; i++)
+			out.writeInt(ids[i]);
+		for (double[] field : new double[][] { mass, radius, px, py, vx, vy })
+			for (int i = 0; i < size; i++)
+				out.writeDouble(field[i]);
+		
+		out.close();
+		Files.move(Paths.get(partial), Paths.get(name),
+		        StandardCopyOption.REPLACE_EXISTING,
+		        StandardCopyOption.ATOMIC_MOVE);
+	}
+	
+	
+	
+	/*
+	 * return an RNG serialized, a copy of its state that later draws do
+	 * not change
+	 */
+	static byte[] freeze(Random rng) {
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream objects = new ObjectOutputStream(bytes)) {
+			objects.writeObject(rng);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e); // in memory: cannot happen
+		}
+		
+		return bytes.toByteArray();
+	}
+	
+	
+	
+	/*
+	 * return the RNG serialized by freeze
+	 */
+	static Random thaw(byte[] frozen) throws IOException {
+		
+		try (ObjectInputStream objects = new ObjectInputStream(
+		        new ByteArrayInputStream(frozen))) {
+			return (Random) objects.readObject();
+		}
+		catch (ClassNotFoundException | ClassCastException e) {
+			throw new IOException("the checkpoint holds no RNG", e);
+		}
+	}
+	
+	
+	
+	/*
+	 * return the checkpoint saved in a file
+	 */
+	static Checkpoint load(String name) throws IOException {
+		
+		Checkpoint c = new Checkpoint();
+		DataInputStream in = new DataInputStream(
+		        new BufferedInputStream(new FileInputStream(name), 1 << 16));
+		
+		try {
+			final byte[] magic = new byte[MAGIC.length()];
+			in.readFully(magic);
+			if (!Arrays.equals(magic, MAGIC.getBytes("US-ASCII")))
+				throw new IOException(name + " is not a checkpoint");
+			
+			c.step = in.readLong();
+			c.collisions = in.readInt();
+			c.G = in.readDouble();
+			c.fps = in.readDouble();
+			c.leftWall = in.readInt();
+			c.rightWall = in.readInt();
+			c.topWall = in.readInt();
+			c.bottomWall = in.readInt();
+			c.gravity = in.readBoolean();
+			c.walls = in.readBoolean();
+			
+			c.placement = new byte[in.readInt()];
+			in.readFully(c.placement);
+			
+			c.size = in.readInt();
+			c.ensure(c.size);
+			for (int i = 0; i < c.size; i++)
+				c.ids[i] = in.readInt();
+			for (double[] field : new double[][] { c.mass, c.radius, c.px,
+			        c.py, c.vx, c.vy })
+				for (int i = 0; i < c.size; i++)
+					field[i] = in.readDouble();
+		}
+		finally {
+			in.close();
+		}
+		
+		return c;
+	}
+}
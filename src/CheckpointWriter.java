@@ -0,0 +1,118 @@
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * @author Eric M Evans
+ *
+ * saves checkpoints on a thread of its own, for --checkpoint. worker 0
+ * fills the one snapshot at the end of a step, while every body holds
+ * still, and hands it over; the snapshot is saved while the run goes on.
+ * a checkpoint due while the last one is still being saved is skipped
+ * rather than waited for.
+ */
+public class CheckpointWriter {
+	
+	private final String		name;
+	private final int			interval;
+	private final Checkpoint	snapshot	= new Checkpoint();
+	private volatile boolean	busy;		// snapshot handed over, not saved
+	private volatile boolean	closing;
+	private int					saved;
+	private int					skipped;
+	
+	private final Thread		writer;
+	private volatile IOException	failure;
+	
+	
+	
+	public CheckpointWriter(String name, int interval) {
+		
+		this.name = name;
+		this.interval = interval;
+		
+		writer = new Thread("checkpoint writer") {
+			
+			@Override
+			public void run() {
+				
+				while (true) {
+					while (!busy && !closing)
+						LockSupport.park(this);
+					if (!busy)
+						return;
+					
+					try {
+						snapshot.save(name);
+						saved++;
+					}
+					catch (IOException e) {
+						failure = e;
+					}
+					busy = false;
+				}
+			}
+		};
+		writer.setDaemon(true);
+		writer.start();
+	}
+	
+	
+	
+	/*
+	 * steps between checkpoints
+	 */
+	int interval() {
+		
+		return interval;
+	}
+	
+	
+	
+	/*
+	 * return the snapshot to fill, or null while the last is being saved.
+	 * called by worker 0 only
+	 */
+	Checkpoint claim() {
+		
+		if (busy) {
+			skipped++;
+			return null;
+		}
+		
+		return snapshot;
+	}
+	
+	
+	
+	/*
+	 * save the claimed snapshot
+	 */
+	void submit() {
+		
+		busy = true;
+		LockSupport.unpark(writer);
+	}
+	
+	
+	
+	/*
+	 * finish the last save. return a line on what was saved and skipped
+	 */
+	String close() throws IOException {
+		
+		closing = true;
+		LockSupport.unpark(writer);
+		try {
+			writer.join();
+		}
+		catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+		if (failure != null)
+			throw failure;
+		
+		return saved + " checkpoints saved to " + name
+		        + (skipped == 0 ? "" : ", " + skipped
+		                + " skipped while saving");
+	}
+}
@@ -0,0 +1,183 @@
+import java.util.Arrays;
+
+/*
+ * @author Eric M Evans
+ *
+ * colliding pairs found in one step. each worker records the pairs of the
+ * heroes it owns; gather() merges them back into ascending (hero, rival)
+ * order and splits them into levels. a pair's level is one past the last
+ * level of either of its bodies, so pairs in a level share no body and
+ * every body still meets its rivals in the original order. resolving the
+ * levels one after another gives the same velocities as a serial pass.
+ */
+public class Contacts {
+	
+	private int[][]	hero;
+	private int[][]	rival;
+	private int[]	count;
+	
+	// merged pairs, grouped by level
+	int[]			pairHero;
+	int[]			pairRival;
+	int[]			levelStart	= new int[2];
+	int				levels		= 0;
+	int				total		= 0;
+	boolean			parallel	= false;
+	
+	private int[]	lastLevel	= new int[0];
+	private int[]	order;
+	private int[]	levelOf;
+	private int[]	cursor;
+	
+	
+	
+	/*
+	 * lists start with room for numBodies pairs per worker, more than a
+	 * step of touching circles normally produces, so they seldom grow
+	 */
+	public Contacts(int numWorkers, int numBodies) {
+		
+		final int room = Math.max(16, numBodies);
+		
+		hero = new int[numWorkers][room];
+		rival = new int[numWorkers][room];
+		pairHero = new int[2 * room];
+		pairRival = new int[2 * room];
+		order = new int[2 * room];
+		levelOf = new int[2 * room];
+		count = new int[numWorkers];
+		cursor = new int[numWorkers];
+	}
+	
+	
+	
+	/*
+	 * forget the pairs of the given worker. called by that worker
+	 */
+	void clear(int worker) {
+		
+		count[worker] = 0;
+	}
+	
+	
+	
+	/*
+	 * record a colliding pair. called by the worker that owns the hero
+	 */
+	void add(int worker, int h, int r) {
+		
+		final int c = count[worker];
+		
+		if (c == hero[worker].length) {
+			hero[worker] = Arrays.copyOf(hero[worker], 2 * c);
+			rival[worker] = Arrays.copyOf(rival[worker], 2 * c);
+		}
+		
+		hero[worker][c] = h;
+		rival[worker][c] = r;
+		count[worker] = c + 1;
+	}
+	
+	
+	
+	/*
+	 * getter
+	 */
+	int count(int worker) {
+		
+		return count[worker];
+	}
+	
+	
+	
+	/*
+	 * return pair c of the given worker, packed as hero << 32 | rival, so
+	 * packed pairs sort in (hero, rival) order
+	 */
+	long packed(int worker, int c) {
+		
+		return ((long) hero[worker][c] << 32) | rival[worker][c];
+	}
+	
+	
+	
+	/*
+	 * merge every worker's pairs in ascending hero order and group them by
+	 * level. heroes are striped over workers, so hero h sits in the list of
+	 * worker h % numWorkers. called by one thread once detection is done
+	 */
+	void gather(int numBodies) {
+		
+		final int numWorkers = count.length;
+		
+		total = 0;
+		for (int w = 0; w < numWorkers; w++) {
+			total += count[w];
+			cursor[w] = 0;
+		}
+		
+		levels = 0;
+		if (total == 0)
+			return;
+		
+		if (lastLevel.length < numBodies) {
+			lastLevel = new int[numBodies];
+			Arrays.fill(lastLevel, -1);
+		}
+		if (order.length < total) {
+			order = new int[2 * total];
+			levelOf = new int[2 * total];
+			pairHero = new int[2 * total];
+			pairRival = new int[2 * total];
+		}
+		
+		// merge into order[], packed as worker list positions
+		int m = 0;
+		for (int h = 0; h < numBodies && m < total; h++) {
+			final int w = h % numWorkers;
+			while (cursor[w] < count[w] && hero[w][cursor[w]] == h) {
+				final int r = rival[w][cursor[w]];
+				final int level = Math.max(lastLevel[h], lastLevel[r]) + 1;
+				
+				lastLevel[h] = level;
+				lastLevel[r] = level;
+				levelOf[m] = level;
+				order[m] = w;
+				levels = Math.max(levels, level + 1);
+				
+				m++;
+				cursor[w]++;
+			}
+		}
+		
+		// counting sort by level, stable, so each level stays in order
+		if (levelStart.length < levels + 1)
+			levelStart = new int[levels + 1];
+		Arrays.fill(levelStart, 0, levels + 1, 0);
+		for (int p = 0; p < total; p++)
+			levelStart[levelOf[p] + 1]++;
+		for (int l = 0; l < levels; l++)
+			levelStart[l + 1] += levelStart[l];
+		
+		for (int w = 0; w < numWorkers; w++)
+			cursor[w] = 0;
+		for (int p = 0; p < total; p++) {
+			final int w = order[p];
+			final int h = hero[w][cursor[w]];
+			final int r = rival[w][cursor[w]];
+			cursor[w]++;
+			
+			final int slot = levelStart[levelOf[p]]++;
+			pairHero[slot] = h;
+			pairRival[slot] = r;
+			
+			lastLevel[h] = -1;
+			lastLevel[r] = -1;
+		}
+		
+		// filling advanced every start one level; shift back
+		for (int l = levels; l > 0; l--)
+			levelStart[l] = levelStart[l - 1];
+		levelStart[0] = 0;
+	}
+}
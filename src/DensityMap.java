@@ -0,0 +1,129 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/*
+ * @author Eric M Evans
+ *
+ * draws the field as a heat map of where the mass, or the bodies, are,
+ * for fields far too large to tell one body from another. each body adds
+ * its weight to the pixel its centre is in, on a histogram of its own
+ * thread's, so the threads never share a cell; the histograms are then
+ * summed band by band, and the sums mapped through a colour ramp on a log
+ * scale, the largest sum white. past the one pass over the bodies, the
+ * cost of a frame is a few passes over the pixels, however many bodies
+ * there are.
+ */
+public class DensityMap {
+	
+	private static final int	BAND_ROWS	= 16;
+	private static final int	RAMP		= 256;
+	private static final int[]	COLOURS		= ramp();
+	
+	private final int			threads		= Runtime.getRuntime()
+	        .availableProcessors();
+	private BufferedImage		image;
+	private int[]				pixels;
+	private float[][]			histograms	= new float[0][];	// per thread
+	private float[]				sum			= new float[0];
+	private float[]				bandMost	= new float[0];
+	
+	
+	
+	/*
+	 * return the heat map of count bodies, centres x and y. weighted by
+	 * mass, or one each when mass is null. the image is reused while the
+	 * size stays the same
+	 */
+	BufferedImage draw(final int width, final int height, final double[] x,
+	        final double[] y, final double[] mass, final int count) {
+		
+		final int cells = width * height;
+		if (image == null || image.getWidth() != width
+		        || image.getHeight() != height) {
+			image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+			pixels = ((DataBufferInt) image.getRaster().getDataBuffer())
+			        .getData();
+			histograms = new float[threads][cells];
+			sum = new float[cells];
+		}
+		
+		// splat: each thread its own slice of the bodies, on its own grid
+		IntStream.range(0, threads).parallel().forEach(t -> {
+			final float[] h = histograms[t];
+			Arrays.fill(h, 0);
+			
+			final int from = (int) ((long) count * t / threads);
+			final int to = (int) ((long) count * (t + 1) / threads);
+			for (int i = from; i < to; i++) {
+				final double px = x[i];
+				final double py = y[i];
+				if (px < 0 || px >= width || py < 0 || py >= height)
+					continue;
+				h[(int) py * width + (int) px] += mass == null ? 1
+				        : (float) mass[i];
+			}
+		});
+		
+		// merge, band by band, keeping each band's largest sum
+		final int bands = (height + BAND_ROWS - 1) / BAND_ROWS;
+		if (bandMost.length < bands)
+			bandMost = new float[bands];
+		
+		IntStream.range(0, bands).parallel().forEach(b -> {
+			final int from = b * BAND_ROWS * width;
+			final int to = Math.min(height, (b + 1) * BAND_ROWS) * width;
+			float most = 0;
+			for (int c = from; c < to; c++) {
+				float s = 0;
+				for (float[] h : histograms)
+					s += h[c];
+				sum[c] = s;
+				most = Math.max(most, s);
+			}
+			bandMost[b] = most;
+		});
+		
+		float most = 0;
+		for (int b = 0; b < bands; b++)
+			most = Math.max(most, bandMost[b]);
+		
+		// map log(1 + sum) onto the ramp
+		final double scale = most > 0 ? (RAMP - 1) / Math.log1p(most) : 0;
+		IntStream.range(0, bands).parallel().forEach(b -> {
+			final int from = b * BAND_ROWS * width;
+			final int to = Math.min(height, (b + 1) * BAND_ROWS) * width;
+			for (int c = from; c < to; c++)
+				pixels[c] = sum[c] == 0 ? COLOURS[0]
+				        : COLOURS[(int) (Math.log1p(sum[c]) * scale)];
+		});
+		
+		return image;
+	}
+	
+	
+	
+	/*
+	 * black through blue, red and yellow to white
+	 */
+	private static int[] ramp() {
+		
+		final float[][] stops = { { 0, 0, 0 }, { 0, 0, 1 }, { 1, 0, 0 },
+		        { 1, 1, 0 }, { 1, 1, 1 } };
+		final int[] ramp = new int[RAMP];
+		
+		for (int i = 0; i < RAMP; i++) {
+			final double at = (double) i / (RAMP - 1) * (stops.length - 1);
+			final int k = Math.min(stops.length - 2, (int) at);
+			final double f = at - k;
+			int rgb = 0;
+			for (int c = 0; c < 3; c++)
+				rgb = rgb << 8 | (int) Math.round(255 * (stops[k][c]
+				        + f * (stops[k + 1][c] - stops[k][c])));
+			ramp[i] = rgb;
+		}
+		
+		return ramp;
+	}
+}
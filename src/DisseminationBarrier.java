@@ -0,0 +1,97 @@
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * @author Eric M Evans
+ * 
+ * Dissemination Barrier. in round i each worker signals worker
+ * (ID + 2^i) mod n and waits on its own message count, so after
+ * ceil(log2 n) rounds every worker has heard from every other.
+ * 
+ * the counts work like the semaphores they replace, but a waiter parks on
+ * its own slot instead of queueing, so passing the barrier allocates
+ * nothing.
+ */
+public class DisseminationBarrier implements Barrier {
+	
+	private static final int					SPINS	= 256;
+	
+	private final AtomicIntegerArray			barrierMsgs;
+	private final AtomicReferenceArray<Thread>	parked;
+	private final int							rounds;
+	private final int							parties;
+	
+	
+	
+	/*
+	 * initialize barrierMsgs -- message counts, [round * parties + worker]
+	 */
+	public DisseminationBarrier(int parties) {
+		
+		this.parties = parties;
+		this.rounds = (int) Math
+		        .ceil(Math.log((double) parties) / Math.log(2.0));
+		
+		barrierMsgs = new AtomicIntegerArray(rounds * parties);
+		parked = new AtomicReferenceArray<>(rounds * parties);
+	}
+	
+	
+	
+	@Override
+	public void await(int id) {
+		
+		int i;
+		int sendID;
+		
+		for (i = 0; i < rounds; i++) {
+			
+			sendID = (id + (1 << i)) % parties;
+			
+			release(i * parties + sendID); // V(e)
+			
+			acquire(i * parties + id); // P(e)
+		}
+	}
+	
+	
+	
+	/*
+	 * V: add a message to slot, waking its owner if parked
+	 */
+	private void release(int slot) {
+		
+		barrierMsgs.incrementAndGet(slot);
+		
+		final Thread t = parked.get(slot);
+		if (t != null)
+			LockSupport.unpark(t);
+	}
+	
+	
+	
+	/*
+	 * P: take a message from slot, spinning briefly, then parking. only the
+	 * slot's owner takes, so a count seen above zero stays above zero
+	 */
+	private void acquire(int slot) {
+		
+		for (int spin = 0; spin < SPINS; spin++) {
+			if (barrierMsgs.get(slot) > 0) {
+				barrierMsgs.decrementAndGet(slot);
+				return;
+			}
+			Thread.onSpinWait();
+		}
+		
+		// registering before the last check pairs with release counting
+		// before reading the registration
+		parked.set(slot, Thread.currentThread());
+		while (barrierMsgs.get(slot) == 0)
+			LockSupport.park(this);
+		parked.set(slot, null);
+		
+		barrierMsgs.decrementAndGet(slot);
+	}
+}
@@ -0,0 +1,166 @@
+
+/*
+ * @author Eric M Evans
+ *
+ * direct-sum gravity kernel over the BodyStore, and the ways of splitting
+ * its triangular pair loop between workers.
+ */
+public class ForceKernel {
+	
+	// how the hero rows of the pair loop are handed out
+	static final String	STRIPE		= "stripe";
+	static final String	BALANCED	= "balanced";
+	static final String	FORKJOIN	= "forkjoin";
+	
+	
+	
+	/*
+	 * add the force of every pair (i, k), k > i, to force row `row`, for
+	 * hero rows i = from, from + step, ... below to
+	 */
+	static void accumulate(BodyStore s, int from, int to, int step, int row,
+	        double G) {
+		
+		final double[] px = s.px;
+		final double[] py = s.py;
+		final double[] mass = s.mass;
+		final double[] forceX = s.forceX[row];
+		final double[] forceY = s.forceY[row];
+		final int n = s.size;
+		
+		for (int i = from; i < to; i += step) {
+			final double heroPX = px[i];
+			final double heroPY = py[i];
+			final double heroMass = mass[i];
+			double heroFX = forceX[i];
+			double heroFY = forceY[i];
+			
+			for (int k = i + 1; k < n; k++) {
+				final double rivalPX = px[k];
+				final double rivalPY = py[k];
+				final double rivalMass = mass[k];
+				
+				final double distance = Math
+				        .sqrt((heroPX - rivalPX) * (heroPX - rivalPX)
+				                + (heroPY - rivalPY) * (heroPY - rivalPY));
+				final double magnitude = (G * heroMass * rivalMass)
+				        / (distance * distance);
+				
+				final double directionX = rivalPX - heroPX;
+				final double directionY = rivalPY - heroPY;
+				
+				heroFX = heroFX + magnitude * directionX / distance;
+				heroFY = heroFY + magnitude * directionY / distance;
+				
+				forceX[k] -= magnitude * directionX / distance;
+				forceY[k] -= magnitude * directionY / distance;
+			}
+			
+			forceX[i] = heroFX;
+			forceY[i] = heroFY;
+		}
+	}
+	
+	
+	
+	/*
+	 * one sweep over the same pairs as accumulate that also tests each pair
+	 * for a collision at the predicted next locations, recording hits in
+	 * contacts under `row`. forces are skipped without gravity
+	 */
+	static void sweep(BodyStore s, int from, int to, int step, int row,
+	        double G, boolean gravity, double[] nextX, double[] nextY,
+	        Contacts contacts) {
+		
+		final double[] px = s.px;
+		final double[] py = s.py;
+		final double[] mass = s.mass;
+		final double[] radius = s.radius;
+		final double[] forceX = s.forceX[row];
+		final double[] forceY = s.forceY[row];
+		final int n = s.size;
+		
+		for (int i = from; i < to; i += step) {
+			final double heroPX = px[i];
+			final double heroPY = py[i];
+			final double heroMass = mass[i];
+			final double heroNextX = nextX[i];
+			final double heroNextY = nextY[i];
+			final double heroRadius = radius[i];
+			double heroFX = forceX[i];
+			double heroFY = forceY[i];
+			
+			for (int k = i + 1; k < n; k++) {
+				final double dX = heroNextX - nextX[k];
+				final double dY = heroNextY - nextY[k];
+				final double distCenters = Math.sqrt(dX * dX + dY * dY);
+				
+				if (distCenters - (heroRadius + radius[k]) <= Worker.EPSILON)
+					contacts.add(row, i, k);
+				
+				if (!gravity)
+					continue;
+				
+				final double rivalPX = px[k];
+				final double rivalPY = py[k];
+				final double rivalMass = mass[k];
+				
+				final double distance = Math
+				        .sqrt((heroPX - rivalPX) * (heroPX - rivalPX)
+				                + (heroPY - rivalPY) * (heroPY - rivalPY));
+				final double magnitude = (G * heroMass * rivalMass)
+				        / (distance * distance);
+				
+				final double directionX = rivalPX - heroPX;
+				final double directionY = rivalPY - heroPY;
+				
+				heroFX = heroFX + magnitude * directionX / distance;
+				heroFY = heroFY + magnitude * directionY / distance;
+				
+				forceX[k] -= magnitude * directionX / distance;
+				forceY[k] -= magnitude * directionY / distance;
+			}
+			
+			forceX[i] = heroFX;
+			forceY[i] = heroFY;
+		}
+	}
+	
+	
+	
+	/*
+	 * return number of pairs in hero rows [0, r) of an n body triangle
+	 */
+	static long pairsBefore(long r, long n) {
+		
+		return r * (n - 1) - r * (r - 1) / 2;
+	}
+	
+	
+	
+	/*
+	 * return first hero row of `part` out of `parts` contiguous blocks
+	 * holding an equal number of pairs. part == parts gives n
+	 */
+	static int balancedStart(int part, int parts, int n) {
+		
+		// the last row has no pairs; the last block still ends at n
+		if (part >= parts)
+			return n;
+		
+		final long target = pairsBefore(n, n) * part / parts;
+		
+		// smallest r with pairsBefore(r) >= target
+		int lo = 0;
+		int hi = n;
+		while (lo < hi) {
+			final int mid = (lo + hi) >>> 1;
+			if (pairsBefore(mid, n) >= target)
+				hi = mid;
+			else
+				lo = mid + 1;
+		}
+		
+		return lo;
+	}
+}
@@ -0,0 +1,238 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * @author Eric M Evans
+ *
+ * work-stealing gravity phase. the pair triangle is split recursively into
+ * blocks of hero rows with equal pair counts, and idle pool threads steal
+ * blocks from busy ones. a block runs on whichever thread picks it up, so
+ * it borrows a free force row for its duration instead of using a
+ * worker's own row. busy time is charged to the pool thread, by its pool
+ * index. the pool may retire a thread and start another with a higher
+ * index, which then shares a slot, so slots are added to atomically and
+ * copied out for the report at the end of each phase.
+ */
+public class ForkJoinForces {
+	
+	// blocks per pool thread, so stealing has something to even out
+	private static final int	BLOCKS_PER_THREAD	= 8;
+	
+	private final ForkJoinPool	pool;
+	private final AtomicInteger	freeRows;
+	private final long[]		busyNanos;	// per pool thread, reported
+	private final AtomicLongArray	busy;
+	private final GravityKernel	kernel;
+	
+	private BodyStore			s;
+	private double				G;
+	private long				leafPairs;
+	private Block				root;		// kept while the body count holds
+	private Thread				waiter;
+	private volatile boolean	finished;
+	
+	
+	
+	public ForkJoinForces(int numWorkers, long[] busyNanos,
+	        GravityKernel kernel) {
+		
+		this.pool = new ForkJoinPool(numWorkers);
+		this.freeRows = new AtomicInteger(
+		        numWorkers == 32 ? -1 : (1 << numWorkers) - 1);
+		this.busyNanos = busyNanos;
+		this.busy = new AtomicLongArray(busyNanos.length);
+		this.kernel = kernel;
+	}
+	
+	
+	
+	/*
+	 * add every pair's force to the store, on the pool. returns when done
+	 */
+	public void run(BodyStore s, double G) {
+		
+		final int n = s.size;
+		
+		this.s = s;
+		this.G = G;
+		
+		// the split depends only on n, so the blocks are reused
+		if (root == null || root.to != n) {
+			this.leafPairs = Math.max(1, ForceKernel.pairsBefore(n, n)
+			        / (pool.getParallelism() * BLOCKS_PER_THREAD));
+			root = new Block(0, n);
+		}
+		else
+			root.reset();
+		
+		// the calling worker parks until the root block wakes it, leaving
+		// the cores to the pool. joining from outside the pool would queue
+		// a waiter node every step; parking allocates nothing. the root's
+		// own done state follows its last line at once
+		waiter = Thread.currentThread();
+		finished = false;
+		pool.execute(root);
+		while (!finished)
+			LockSupport.park(this);
+		while (!root.isDone())
+			Thread.onSpinWait();
+		
+		for (int i = 0; i < busyNanos.length; i++)
+			busyNanos[i] = busy.get(i);
+	}
+	
+	
+	
+	/*
+	 * take a free force row, the calling pool thread's own if it is free,
+	 * so rows and busy times line up with threads. waits if all are lent
+	 * out; a block never blocks while holding a row, so the wait is short
+	 */
+	private int borrowRow() {
+		
+		final int own = slot();
+		
+		while (true) {
+			final int free = freeRows.get();
+			if (free == 0) {
+				Thread.yield();
+				continue;
+			}
+			
+			final int row = (own >= 0 && (free & (1 << own)) != 0) ? own
+			        : Integer.numberOfTrailingZeros(free);
+			if (freeRows.compareAndSet(free, free & ~(1 << row)))
+				return row;
+		}
+	}
+	
+	
+	
+	/*
+	 * return the calling pool thread's slot, its force row and busy time,
+	 * or -1 off the pool
+	 */
+	private int slot() {
+		
+		final Thread self = Thread.currentThread();
+		
+		return (self instanceof ForkJoinWorkerThread)
+		        ? ((ForkJoinWorkerThread) self).getPoolIndex() % busyNanos.length
+		        : -1;
+	}
+	
+	
+	
+	/*
+	 * hand a borrowed force row back
+	 */
+	private void returnRow(int row) {
+		
+		while (true) {
+			final int free = freeRows.get();
+			if (freeRows.compareAndSet(free, free | (1 << row)))
+				return;
+		}
+	}
+	
+	
+	
+	public void shutdown() {
+		
+		pool.shutdown();
+	}
+	
+	
+	
+	/*
+	 * hero rows [from, to) of the pair triangle, split into two child
+	 * blocks where the pair count halves, down to leaves of leafPairs
+	 */
+	@SuppressWarnings("serial")
+	private class Block extends RecursiveAction {
+		
+		private final int	from;
+		private final int	to;
+		private Block		left;
+		private Block		right;
+		
+		
+		
+		public Block(int from, int to) {
+			this.from = from;
+			this.to = to;
+			
+			final int n = s.size;
+			final long pairs = ForceKernel.pairsBefore(to, n)
+			        - ForceKernel.pairsBefore(from, n);
+			
+			if (pairs > leafPairs && to - from > 1) {
+				// split where the pair count halves
+				final long half = ForceKernel.pairsBefore(from, n) + pairs / 2;
+				int lo = from + 1;
+				int hi = to - 1;
+				while (lo < hi) {
+					final int mid = (lo + hi) >>> 1;
+					if (ForceKernel.pairsBefore(mid, n) >= half)
+						hi = mid;
+					else
+						lo = mid + 1;
+				}
+				final int mid = lo;
+				
+				left = new Block(from, mid);
+				right = new Block(mid, to);
+			}
+		}
+		
+		
+		
+		/*
+		 * make this block and its children runnable again
+		 */
+		void reset() {
+			
+			reinitialize();
+			if (left != null) {
+				left.reset();
+				right.reset();
+			}
+		}
+		
+		
+		
+		@Override
+		protected void compute() {
+			
+			if (left != null)
+				invokeAll(left, right);
+			else
+				leaf();
+			
+			if (this == root) {
+				finished = true;
+				LockSupport.unpark(waiter);
+			}
+		}
+		
+		
+		
+		/*
+		 * add this block's pairs on a borrowed row
+		 */
+		private void leaf() {
+			
+			final long start = System.nanoTime();
+			final int row = borrowRow();
+			
+			kernel.accumulate(s, from, to, 1, row, G);
+			
+			returnRow(row);
+			busy.addAndGet(Math.max(0, slot()), System.nanoTime() - start);
+		}
+	}
+}
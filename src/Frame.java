@@ -0,0 +1,194 @@
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/*
+ * @author Eric M Evans
+ *
+ * the bodies as the GUI draws them at the end of one step: primitive
+ * copies the workers never touch again. a frame is filled by one thread,
+ * handed over through a FramePipe and not changed while it is there or
+ * being painted; the pipe hands it back for reuse afterwards.
+ *
+ * the thread filling a frame also indexes it: a grid over the bodies'
+ * extent, each cell listing the bodies centred in it, so the painter
+ * finds the bodies in view in time that grows with those, not with all.
+ * the extent is where all but the outermost few bodies are, from a sample,
+ * so one body flung far away cannot stretch every cell; bodies outside it
+ * are kept in the edge cells, looked at only when the view reaches them.
+ */
+public class Frame {
+	
+	long		seq;		// order of publishing, 0 for none yet
+	long		step;		// -1 for an edit made while paused
+	long		nanos;		// when published
+	int			count;
+	double[]	x		= new double[0];
+	double[]	y		= new double[0];
+	double[]	radius	= new double[0];
+	double[]	mass	= new double[0];
+	int[]		id		= new int[0];
+	Color[]		color	= new Color[0];
+	
+	// the index: cells across and down, where and how large they are, and
+	// the bodies by cell, cell c's from order[cellStart[c]]
+	private static final int	BODIES_PER_CELL	= 4;
+	private static final int	MOST_ACROSS		= 1024;
+	private static final int	SAMPLES			= 4096;
+	private static final int	OUTERMOST		= 4;	// samples left out a side
+	private final double[]		sample			= new double[SAMPLES];
+	private int					across;
+	private double				gridLeft, gridTop;
+	private double				cellWidth, cellHeight;
+	private double				largest;	// radius
+	private int[]				cellStart		= new int[2];
+	private int[]				order			= new int[0];
+	
+	
+	
+	/*
+	 * copy every body of the store, as of the given step
+	 */
+	void fill(ArrayList<Body> bodies, BodyStore s, long step) {
+		
+		final int n = Math.min(bodies.size(), s.size);
+		
+		if (x.length < n) {
+			final int cap = Math.max(n, 2 * x.length);
+			x = new double[cap];
+			y = new double[cap];
+			radius = new double[cap];
+			mass = new double[cap];
+			id = new int[cap];
+			color = new Color[cap];
+		}
+		
+		System.arraycopy(s.px, 0, x, 0, n);
+		System.arraycopy(s.py, 0, y, 0, n);
+		System.arraycopy(s.radius, 0, radius, 0, n);
+		System.arraycopy(s.mass, 0, mass, 0, n);
+		for (int i = 0; i < n; i++) {
+			final Body body = bodies.get(i);
+			id[i] = body.getID();
+			color[i] = body.getColor();
+		}
+		
+		this.count = n;
+		this.step = step;
+		index();
+	}
+	
+	
+	
+	/*
+	 * grid the bodies by centre, a counting sort into cells
+	 */
+	private void index() {
+		
+		largest = 0;
+		for (int i = 0; i < count; i++)
+			largest = Math.max(largest, radius[i]);
+		
+		int taken = sort(x);
+		final int skip = taken > 4 * OUTERMOST ? OUTERMOST : 0;
+		final double left = sample[skip], right = sample[taken - 1 - skip];
+		taken = sort(y);
+		final double top = sample[skip], bottom = sample[taken - 1 - skip];
+		
+		across = (int) Math.max(1, Math.min(MOST_ACROSS,
+		        Math.sqrt((double) count / BODIES_PER_CELL)));
+		gridLeft = count == 0 ? 0 : left;
+		gridTop = count == 0 ? 0 : top;
+		cellWidth = count == 0 || right == left ? 1 : (right - left) / across;
+		cellHeight = count == 0 || bottom == top ? 1 : (bottom - top) / across;
+		
+		final int cells = across * across;
+		if (cellStart.length < cells + 1)
+			cellStart = new int[cells + 1];
+		if (order.length < count)
+			order = new int[x.length];
+		
+		Arrays.fill(cellStart, 0, cells + 1, 0);
+		for (int i = 0; i < count; i++)
+			cellStart[cell(x[i], y[i]) + 1]++;
+		for (int c = 0; c < cells; c++)
+			cellStart[c + 1] += cellStart[c];
+		for (int i = 0; i < count; i++)
+			order[cellStart[cell(x[i], y[i])]++] = i;
+		for (int c = cells; c > 0; c--)
+			cellStart[c] = cellStart[c - 1];
+		cellStart[0] = 0;
+	}
+	
+	
+	
+	/*
+	 * sort an even sample of up to SAMPLES bodies' x or y into sample, and
+	 * return its size, at least 1
+	 */
+	private int sort(double[] at) {
+		
+		final int taken = Math.min(count, SAMPLES);
+		if (taken == 0) {
+			sample[0] = 0;
+			return 1;
+		}
+		
+		final int stride = count / taken;
+		for (int k = 0; k < taken; k++)
+			sample[k] = at[k * stride];
+		Arrays.sort(sample, 0, taken);
+		
+		return taken;
+	}
+	
+	
+	
+	private int cell(double px, double py) {
+		
+		return row(py) * across + column(px);
+	}
+	
+	
+	
+	private int column(double px) {
+		
+		return (int) Math.max(0, Math.min(across - 1, (px - gridLeft)
+		        / cellWidth));
+	}
+	
+	
+	
+	private int row(double py) {
+		
+		return (int) Math.max(0, Math.min(across - 1, (py - gridTop)
+		        / cellHeight));
+	}
+	
+	
+	
+	/*
+	 * write into seen the index of every body that reaches into the box,
+	 * and return how many. seen holds count at least
+	 */
+	int visible(double left, double top, double right, double bottom,
+	        int[] seen) {
+		
+		// a body centred up to the largest radius outside may reach in
+		final int c0 = column(left - largest), c1 = column(right + largest);
+		final int r0 = row(top - largest), r1 = row(bottom + largest);
+		int n = 0;
+		
+		for (int r = r0; r <= r1; r++)
+			for (int k = cellStart[r * across + c0]; k < cellStart[r * across
+			        + c1 + 1]; k++) {
+				final int i = order[k];
+				final double d = radius[i];
+				if (x[i] + d >= left && x[i] - d < right && y[i] + d >= top
+				        && y[i] - d < bottom)
+					seen[n++] = i;
+			}
+		
+		return n;
+	}
+}
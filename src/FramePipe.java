@@ -0,0 +1,56 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * @author Eric M Evans
+ *
+ * lock-free handoff of frames from the simulation to the painter. a
+ * producer fills a frame of its own and swaps it for the one waiting; the
+ * painter swaps a spare for the waiting one only when that one is newer.
+ * nobody ever waits, and the frames go round without any allocation.
+ * frames published faster than they are painted are dropped, all but the
+ * newest.
+ */
+public class FramePipe {
+	
+	private final AtomicReference<Frame>	waiting		= new AtomicReference<>(
+	        new Frame());
+	private final AtomicLong				published	= new AtomicLong();
+	
+	
+	
+	/*
+	 * hand over a filled frame and return one to fill next time
+	 */
+	Frame publish(Frame filled) {
+		
+		filled.seq = published.incrementAndGet();
+		filled.nanos = System.nanoTime();
+		
+		return waiting.getAndSet(filled);
+	}
+	
+	
+	
+	/*
+	 * return the newest frame, giving back a spare, or null when nothing
+	 * newer than seq seen has come
+	 */
+	Frame take(Frame spare, long seen) {
+		
+		if (waiting.get().seq <= seen)
+			return null;
+		
+		return waiting.getAndSet(spare);
+	}
+	
+	
+	
+	/*
+	 * return the number of frames published so far
+	 */
+	long newest() {
+		
+		return published.get();
+	}
+}
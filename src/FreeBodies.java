@@ -1,14 +1,16 @@
 
 import java.awt.Color;
 import java.awt.Point;
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Observable;
 import java.util.Random;
-import java.util.concurrent.Semaphore;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 /*
  * @author Eric M Evans
@@ -18,13 +20,48 @@ import java.util.concurrent.Semaphore;
 public class FreeBodies extends Observable {
 	
 	public ArrayList<Body>		bodies;
+	BodyStore					state;
 	
 	private double				G				= 10000;
-	private double				fps				= 500;
+	private double				fps				= 500;		// time step 1/fps
+	private volatile int		stepsPerSecond	= 500;		// GUI pace
+	static final int			UNCAPPED		= 0;
+	int							renderFPS		= 0;		// 0: refresh rate
 	
 	public boolean				gravity			= true;
 	public boolean				walls			= false;
+	boolean						barnesHut		= false;
+	double						theta			= 0.5;
+	boolean						forceError		= false;
+	String						partition		= ForceKernel.STRIPE;
+	GravityKernel				kernel			= ForceKernel::accumulate;
+	boolean						fused			= false;
+	int							allocWarmup		= -1;		// -1: no check
+	ForkJoinForces				forkJoin;
+	long[]						busyNanos;
+	StepMetrics					metrics;
+	String						traceName;
+	Trace						trace;
+	String						recordName;
+	int							recordEvery		= 10;
+	TrajectoryRecorder			recorder;
+	String						checkpointName;
+	int							checkpointEvery	= 1000;
+	CheckpointWriter			checkpoints;
+	String						resumeName;
+	String						scenarioName;
+	String						saveScenarioName;
+	int							startStep		= 0;
+	QuadTree					tree			= new QuadTree();
+	SpatialHash					grid			= new SpatialHash();
+	Contacts					contacts;
 	boolean						usingGUI;
+	
+	// what the GUI paints: the newest frame, and a frame each for worker 0
+	// and for edits from the GUI to fill
+	final FramePipe				frames			= new FramePipe();
+	private Frame				stepFrame		= new Frame();
+	private Frame				editFrame		= new Frame();
 	boolean						play			= false;
 	
 	int							leftWall		= 0;
@@ -37,14 +74,42 @@ public class FreeBodies extends Observable {
 	                                                            // loop
 	private int					numCollisions	= 0;
 	
-	private int					workersDone		= 0;
-	Semaphore[][]				barrierMsgs		= null;
-	int							rounds;
+	Barrier						barrier;
+	String						barrierName		= Barrier.DISSEMINATION;
 	
 	private static final String	guiArg			= "--gui";
+	private static final String	barnesHutArg	= "--barnes-hut";
+	private static final String	thetaArg		= "--theta";
+	private static final String	forceErrorArg	= "--force-error";
+	private static final String	partitionArg	= "--partition";
+	private static final String	barrierArg		= "--barrier";
+	private static final String	kernelArg		= "--kernel";
+	private static final String	fusedArg		= "--fused";
+	private static final String	allocCheckArg	= "--alloc-check";
+	private static final String	benchArg		= "--bench";
+	private static final String	writeBenchArg	= "--write-bench";
+	private static final String	seedArg			= "--seed";
+	private static final String	traceArg		= "--trace";
+	private static final String	recordArg		= "--record";
+	private static final String	recordEveryArg	= "--record-every";
+	private static final String	checkpointArg	= "--checkpoint";
+	private static final String	checkpointEveryArg	= "--checkpoint-every";
+	private static final String	resumeArg		= "--resume";
+	private static final String	scenarioArg		= "--scenario";
+	private static final String	saveScenarioArg	= "--save-scenario";
+	private static final String	stepsPerSecArg	= "--steps-per-sec";
+	private static final String	renderFPSArg	= "--render-fps";
+	
+	// heap size of the smallest object, a header and nothing else
+	private static final int	MIN_OBJECT_BYTES	= 16;
 	
 	private static Random		rand			= new Random();
 	
+	// initial placement, the same for the same seed
+	static final long			DEFAULT_SEED	= 42;
+	long						seed			= DEFAULT_SEED;
+	private Random				placement;
+	
 	
 	
 	/*
@@ -52,6 +117,16 @@ public class FreeBodies extends Observable {
 	 */
 	public static void main(String[] args) {
 		
+		if (Arrays.asList(args).contains(writeBenchArg)) {
+			WriteBench.run();
+			return;
+		}
+		
+		if (Arrays.asList(args).contains(benchArg)) {
+			ScalingBench.run("bench");
+			return;
+		}
+		
 		FreeBodies freebodies = new FreeBodies(args);
 		
 		try {
@@ -97,6 +172,22 @@ public class FreeBodies extends Observable {
 	
 	
 	
+	/*
+	 * setup a non-GUI simulation with default options, ready for workers to
+	 * step, without running it. for the benchmarks
+	 */
+	FreeBodies(int numWorkers, int numBodies, int massOfBody) {
+		
+		this.numWorkers = numWorkers;
+		bodies = createBodies(numBodies, massOfBody);
+		usingGUI = false;
+		play = true;
+		
+		prepare();
+	}
+	
+	
+	
 	/*
 	 * for GUI AND non-GUI modes, creating initial bodies from command line
 	 * arguments
@@ -105,9 +196,12 @@ public class FreeBodies extends Observable {
 		
 		System.out.println(list);
 		
+		takeOptions(list);
+		
 		if (list.size() == 1 && list.contains(guiArg)) {
 			rightWall = 750;
 			bottomWall = 600;
+			state = new BodyStore(16, this.numWorkers);
 			return new ArrayList<Body>();
 		}
 		
@@ -125,7 +219,27 @@ public class FreeBodies extends Observable {
 			        + " <number of bodies> <mass of each body> "
 			        + "<number of time steps> \n\t invoke \"" + guiArg
 			        + "\" for GUI"
-			        + "\n\t GUI may be ran with no integer arguments");
+			        + "\n\t GUI may be ran with no integer arguments"
+			        + "\n\t options: " + barnesHutArg + " [" + thetaArg
+			        + " <opening angle>] " + forceErrorArg + " "
+			        + partitionArg + " <" + ForceKernel.STRIPE + "|"
+			        + ForceKernel.BALANCED + "|" + ForceKernel.FORKJOIN
+			        + "> " + barrierArg + " <"
+			        + String.join("|", Barrier.NAMES) + "> " + kernelArg
+			        + " <" + String.join("|", GravityKernel.NAMES) + "> "
+			        + seedArg + " <n> " + traceArg + " <file.json> "
+			        + recordArg + " <file> [" + recordEveryArg + " <k>] "
+			        + checkpointArg + " <file> [" + checkpointEveryArg
+			        + " <k>] " + resumeArg + " <file> " + scenarioArg
+			        + " <file.csv|file.bin> " + saveScenarioArg + " <file.bin> "
+			        + stepsPerSecArg + " <n|max> " + renderFPSArg + " <n> "
+			        + fusedArg + " "
+			        + allocCheckArg
+			        + "\n\t " + benchArg
+			        + " alone measures scaling over workers and bodies, "
+			        + writeBenchArg + " alone the output writer; the "
+			        + "barriers, force layouts, gravity kernels and step "
+			        + "phases are JMH benchmarks in bench/");
 			System.exit(0);
 		}
 		
@@ -161,35 +275,384 @@ public class FreeBodies extends Observable {
 			System.exit(0);
 		}
 		
-		// create bodies
-		ArrayList<Body> bodies = new ArrayList<>();
-		for (int i = 0; i < numBodies; i++) {
-			Body bod = new Body(massOfBody, 20, new Point.Double(0, 0),
-			        new Point.Double(0, 0), i, this.numWorkers);
-			if (this.placeRandomly(bod, bodies) == false)
-				System.out.println("not all " + numBodies
-				        + " placed. continuing regardless");
-			else
-				bodies.add(bod);
-		}
+		// bodies, steps taken and the rest from the checkpoint instead, or
+		// bodies alone from a scenario
+		ArrayList<Body> initial = resumeName != null ? resume(resumeName)
+		        : scenarioName != null ? loadScenario(scenarioName)
+		                : createBodies(numBodies, massOfBody);
+		
+		if (saveScenarioName != null)
+			try {
+				Scenario.save(saveScenarioName, state);
+			}
+			catch (IOException e) {
+				System.out.println("Error printing to file");
+				e.printStackTrace();
+			}
+		
+		// measure the second half, once every buffer has reached its size
+		if (allocWarmup == 0)
+			allocWarmup = (startStep + numTimeSteps) / 2;
 		
 		if (addGUIarg)
 			list.add(guiArg);
 		
+		return initial;
+	}
+	
+	
+	
+	/*
+	 * place numBodies bodies of the given mass at rest, apart, in a new
+	 * store. later placements from the GUI continue a sequence of the same
+	 * seed
+	 */
+	private ArrayList<Body> createBodies(int numBodies, int massOfBody) {
+		
+		final double radius = 20;
+		
+		Placement grid = null;
+		try {
+			grid = new Placement(numBodies, radius, leftWall, topWall,
+			        rightWall, bottomWall);
+		}
+		catch (IllegalArgumentException e) {
+			System.out.println(e.getMessage());
+			System.exit(0);
+		}
+		
+		final double[] x = new double[numBodies];
+		final double[] y = new double[numBodies];
+		grid.place(x, y, numBodies, radius, seed);
+		
+		state = new BodyStore(numBodies, this.numWorkers);
+		placement = new Random(seed);
+		ArrayList<Body> bodies = new ArrayList<>(numBodies);
+		for (int i = 0; i < numBodies; i++)
+			bodies.add(new Body(state, state.add(massOfBody, radius, x[i], y[i],
+			        0, 0), i));
+		
+		return bodies;
+	}
+	
+	
+	
+	/*
+	 * set the model as the checkpoint left it and return its bodies. the
+	 * rest of the run is the same as had it never stopped, given the same
+	 * options and number of workers
+	 */
+	private ArrayList<Body> resume(String name) {
+		
+		Checkpoint c = null;
+		try {
+			c = Checkpoint.load(name);
+		}
+		catch (IOException e) {
+			System.out.println("Error reading " + name);
+			e.printStackTrace();
+			System.exit(0);
+		}
+		
+		if (c.step >= numTimeSteps) {
+			System.out.println(name + " is at step " + c.step + ", not before "
+			        + numTimeSteps);
+			System.exit(0);
+		}
+		
+		startStep = (int) c.step;
+		numCollisions = c.collisions;
+		G = c.G;
+		fps = c.fps;
+		leftWall = c.leftWall;
+		rightWall = c.rightWall;
+		topWall = c.topWall;
+		bottomWall = c.bottomWall;
+		gravity = c.gravity;
+		walls = c.walls;
+		try {
+			placement = Checkpoint.thaw(c.placement);
+		}
+		catch (IOException e) {
+			System.out.println("Error reading " + name);
+			e.printStackTrace();
+			System.exit(0);
+		}
+		
+		// exactly as saved, velocities included, each body a view of its
+		// slot
+		state = new BodyStore(c.size, this.numWorkers);
+		System.arraycopy(c.mass, 0, state.mass, 0, c.size);
+		System.arraycopy(c.radius, 0, state.radius, 0, c.size);
+		System.arraycopy(c.px, 0, state.px, 0, c.size);
+		System.arraycopy(c.py, 0, state.py, 0, c.size);
+		System.arraycopy(c.vx, 0, state.vx, 0, c.size);
+		System.arraycopy(c.vy, 0, state.vy, 0, c.size);
+		state.size = c.size;
+		
+		ArrayList<Body> bodies = new ArrayList<>(c.size);
+		for (int i = 0; i < c.size; i++)
+			bodies.add(new Body(state, i, c.ids[i]));
+		
+		System.out.println("resuming from " + name + " at step " + startStep);
+		
+		return bodies;
+	}
+	
+	
+	
+	/*
+	 * load every body from a scenario file, in place of the number and
+	 * mass of bodies on the command line
+	 */
+	private ArrayList<Body> loadScenario(String name) {
+		
+		final long start = System.nanoTime();
+		try {
+			state = Scenario.load(name, this.numWorkers);
+		}
+		catch (IOException e) {
+			System.out.println("Error reading " + name);
+			e.printStackTrace();
+			System.exit(0);
+		}
+		
+		ArrayList<Body> bodies = new ArrayList<>(state.size);
+		for (int i = 0; i < state.size; i++)
+			bodies.add(new Body(state, i, i));
+		
+		System.out.println(state.size + " bodies loaded from " + name + " in "
+		        + (System.nanoTime() - start) / 1000000 + " ms");
+		
 		return bodies;
 	}
 	
 	
 	
 	/*
-	 * place body in unoccupied random location
+	 * fill the checkpoint snapshot as of the end of a step and hand it to
+	 * the writer, unless it is still saving the last. called by worker 0
+	 * while every body holds still
+	 */
+	void takeCheckpoint(long step) {
+		
+		final Checkpoint c = checkpoints.claim();
+		if (c == null)
+			return;
+		
+		final BodyStore s = state;
+		final int n = s.size;
+		
+		c.ensure(n);
+		c.step = step;
+		c.collisions = numCollisions;
+		c.G = G;
+		c.fps = fps;
+		c.leftWall = leftWall;
+		c.rightWall = rightWall;
+		c.topWall = topWall;
+		c.bottomWall = bottomWall;
+		c.gravity = gravity;
+		c.walls = walls;
+		// the RNG as it is now: the live one goes on being drawn from
+		c.placement = Checkpoint.freeze(placement);
+		
+		c.size = n;
+		for (int i = 0; i < n; i++)
+			c.ids[i] = bodies.get(i).getID();
+		System.arraycopy(s.mass, 0, c.mass, 0, n);
+		System.arraycopy(s.radius, 0, c.radius, 0, n);
+		System.arraycopy(s.px, 0, c.px, 0, n);
+		System.arraycopy(s.py, 0, c.py, 0, n);
+		System.arraycopy(s.vx, 0, c.vx, 0, n);
+		System.arraycopy(s.vy, 0, c.vy, 0, n);
+		
+		checkpoints.submit();
+	}
+	
+	
+	
+	/*
+	 * remove optional flags and their values from the argument list
+	 */
+	private void takeOptions(ArrayList<String> list) {
+		
+		barnesHut = list.remove(barnesHutArg);
+		forceError = list.remove(forceErrorArg);
+		fused = list.remove(fusedArg);
+		final boolean allocCheck = list.remove(allocCheckArg);
+		
+		String value = takeValue(list, thetaArg);
+		if (value != null) {
+			theta = Double.parseDouble(value);
+			if (theta < 0) {
+				System.out.println("opening angle must not be negative");
+				System.exit(0);
+			}
+		}
+		
+		value = takeValue(list, partitionArg);
+		if (value != null) {
+			if (!value.equals(ForceKernel.STRIPE)
+			        && !value.equals(ForceKernel.BALANCED)
+			        && !value.equals(ForceKernel.FORKJOIN)) {
+				System.out.println("unknown partitioning: " + value);
+				System.exit(0);
+			}
+			partition = value;
+		}
+		
+		value = takeValue(list, barrierArg);
+		if (value != null) {
+			if (Barrier.create(value, 1) == null) {
+				System.out.println("unknown barrier: " + value);
+				System.exit(0);
+			}
+			barrierName = value;
+		}
+		
+		value = takeValue(list, seedArg);
+		if (value != null)
+			seed = Long.parseLong(value);
+		
+		traceName = takeValue(list, traceArg);
+		
+		recordName = takeValue(list, recordArg);
+		value = takeValue(list, recordEveryArg);
+		if (value != null) {
+			recordEvery = Integer.parseInt(value);
+			if (recordEvery < 1) {
+				System.out.println("steps between records must be positive");
+				System.exit(0);
+			}
+		}
+		if (recordName != null && list.contains(guiArg)) {
+			System.out.println(recordArg + " runs without the GUI, whose "
+			        + "bodies come and go");
+			System.exit(0);
+		}
+		
+		checkpointName = takeValue(list, checkpointArg);
+		value = takeValue(list, checkpointEveryArg);
+		if (value != null) {
+			checkpointEvery = Integer.parseInt(value);
+			if (checkpointEvery < 1) {
+				System.out.println("steps between checkpoints must be positive");
+				System.exit(0);
+			}
+		}
+		resumeName = takeValue(list, resumeArg);
+		scenarioName = takeValue(list, scenarioArg);
+		saveScenarioName = takeValue(list, saveScenarioArg);
+		if ((checkpointName != null || resumeName != null)
+		        && list.contains(guiArg)) {
+			System.out.println(checkpointArg + " and " + resumeArg
+			        + " run without the GUI");
+			System.exit(0);
+		}
+		
+		value = takeValue(list, stepsPerSecArg);
+		if (value != null) {
+			stepsPerSecond = value.equals("max") ? UNCAPPED : Integer
+			        .parseInt(value);
+			if (stepsPerSecond < 0) {
+				System.out.println("steps per second must be positive, or max");
+				System.exit(0);
+			}
+		}
+		
+		value = takeValue(list, renderFPSArg);
+		if (value != null) {
+			renderFPS = Integer.parseInt(value);
+			if (renderFPS < 1 || renderFPS > 1000) {
+				System.out.println("render frames per second must be 1 to "
+				        + "1000");
+				System.exit(0);
+			}
+		}
+		
+		value = takeValue(list, kernelArg);
+		if (value != null) {
+			kernel = GravityKernel.create(value);
+			if (kernel == null) {
+				System.out.println("unknown kernel: " + value);
+				System.exit(0);
+			}
+			if (fused && !value.equals(GravityKernel.SCALAR)) {
+				System.out.println(fusedArg + " tests collisions in its pair"
+				        + " loop, which only the " + GravityKernel.SCALAR
+				        + " kernel does");
+				System.exit(0);
+			}
+		}
+		
+		if (allocCheck) {
+			if (list.contains(guiArg)) {
+				System.out.println(allocCheckArg + " runs without the GUI");
+				System.exit(0);
+			}
+			if (traceName != null) {
+				System.out.println(allocCheckArg + " runs without "
+				        + traceArg + ", whose buffers grow");
+				System.exit(0);
+			}
+			allocWarmup = 0; // set once the step count is known
+		}
+		
+		if (fused && (barnesHut || partition.equals(ForceKernel.FORKJOIN))) {
+			System.out.println(fusedArg + " sweeps the direct pair loop on the"
+			        + " workers: it cannot be combined with " + barnesHutArg
+			        + " or " + partitionArg + " " + ForceKernel.FORKJOIN);
+			System.exit(0);
+		}
+	}
+	
+	
+	
+	/*
+	 * remove "name value" from the argument list and return value, or null
+	 * when name is absent
+	 */
+	private static String takeValue(ArrayList<String> list, String name) {
+		
+		final int at = list.indexOf(name);
+		if (at < 0)
+			return null;
+		
+		if (at + 1 >= list.size()) {
+			System.out.println(name + " needs a value");
+			System.exit(0);
+		}
+		
+		list.remove(at);
+		return list.remove(at);
+	}
+	
+	
+	
+	/*
+	 * print Barnes-Hut force error against the direct-sum kernel
+	 */
+	private void reportForceError(String when) {
+		
+		final double[] err = QuadTree.forceError(state, G, theta);
+		System.out.println("force error " + when + " (theta " + theta
+		        + "): rms " + err[0] + ", max " + err[1]);
+	}
+	
+	
+	
+	/*
+	 * place body in unoccupied random location, checking it against every
+	 * body in the list. for the odd body added from the GUI; a whole field
+	 * is placed by Placement
 	 */
 	public boolean placeRandomly(Body bod, ArrayList<Body> list) {
 		
 		/*
 		 * generate random location, not occupied by another body
 		 */
-		Random rng = new Random();
+		final Random rng = placement;
 		int x = 0;
 		int y = 0;
 		int tries = 0;
@@ -206,7 +669,7 @@ public class FreeBodies extends Observable {
 			bod.setPosition(new Point.Double(x, y));
 			
 			for (Body rival : list)
-				if (bod.doIntersect(rival, fps, -1)) {
+				if (bod.doIntersect(rival, fps)) {
 					tryAgain = true;
 					break;
 				}
@@ -225,21 +688,28 @@ public class FreeBodies extends Observable {
 	 */
 	private void loop() throws InterruptedException {
 		
-		ArrayList<Worker> workers = new ArrayList<>();
+		prepare();
+		publishMetrics();
 		
-		initBarrierMsgs(); // setup Dissemination Barrier
+		if (recordName != null)
+			try {
+				recorder = new TrajectoryRecorder(recordName, state.size,
+				        recordEvery);
+			}
+			catch (IOException e) {
+				System.out.println("Error opening " + recordName);
+				e.printStackTrace();
+			}
 		
-		for (int i = 0; i < this.numWorkers; i++)
-			workers.add(new Worker(i, this));
+		if (checkpointName != null)
+			checkpoints = new CheckpointWriter(checkpointName, checkpointEvery);
 		
-		final long start = System.currentTimeMillis();
+		if (forceError)
+			reportForceError("at start");
 		
-		for (Worker w : workers)
-			w.start();
+		final long start = System.currentTimeMillis();
 		
-		// wait for worker threads to terminate
-		while (workersDone != numWorkers)
-			Thread.sleep(10);
+		final ArrayList<Worker> workers = runWorkers();
 		
 		final long finish = System.currentTimeMillis();
 		final long elapsed = finish - start;
@@ -250,9 +720,32 @@ public class FreeBodies extends Observable {
 		System.out.println("computation time: " + seconds + " seconds " + millis
 		        + " milliseconds");
 		System.out.println("collisions: " + this.numCollisions);
+		reportBusyTime();
+		System.out.println(metrics.getSummary());
+		
+		if (allocWarmup >= 0)
+			checkAllocation(workers);
+		
+		if (forkJoin != null)
+			forkJoin.shutdown();
+		
+		if (forceError)
+			reportForceError("at end");
 		
 		try {
 			writeToFile("output.txt");
+			if (trace != null) {
+				trace.write(traceName);
+				System.out.println("trace written to " + traceName);
+			}
+			if (recorder != null) {
+				final long stalls = recorder.close();
+				System.out.println("trajectory written to " + recordName
+				        + (stalls == 0 ? "" : ", worker 0 waited on the "
+				                + "writer " + stalls + " times"));
+			}
+			if (checkpoints != null)
+				System.out.println(checkpoints.close());
 		}
 		catch (IOException e) {
 			System.out.println("Error printing to file");
@@ -263,19 +756,124 @@ public class FreeBodies extends Observable {
 	
 	
 	/*
-	 * initialize barrierMsgs -- message passing array
+	 * register the step metrics with the platform MBean server, for
+	 * jconsole and the like. a failure costs only the JMX view
+	 */
+	private void publishMetrics() {
+		
+		try {
+			final MBeanServer server = ManagementFactory
+			        .getPlatformMBeanServer();
+			final ObjectName name = new ObjectName("FreeBodies:type=StepMetrics");
+			
+			if (server.isRegistered(name))
+				server.unregisterMBean(name);
+			server.registerMBean(metrics, name);
+		}
+		catch (JMException e) {
+			System.out.println("Error publishing step metrics");
+			e.printStackTrace();
+		}
+	}
+	
+	
+	
+	/*
+	 * start a thread per worker and return the workers once every one has
+	 * taken its steps
 	 */
-	void initBarrierMsgs() {
+	ArrayList<Worker> runWorkers() throws InterruptedException {
 		
-		rounds = (int) Math.ceil(Math.log((double) numWorkers) / Math.log(2.0));
+		ArrayList<Worker> workers = new ArrayList<>();
 		
-		barrierMsgs = new Semaphore[rounds][numWorkers];
+		for (int i = 0; i < this.numWorkers; i++)
+			workers.add(new Worker(i, this));
 		
-		int r, c;
-		for (r = 0; r < rounds; r++)
-			for (c = 0; c < numWorkers; c++)
-				barrierMsgs[r][c] = new Semaphore(0);
-			
+		for (Worker w : workers)
+			w.start();
+		
+		for (Worker w : workers)
+			w.join();
+		
+		return workers;
+	}
+	
+	
+	
+	/*
+	 * create what the workers share: barrier, contact lists, timers, step
+	 * metrics, the trace and the fork/join pool
+	 */
+	private void prepare() {
+		
+		barrier = Barrier.create(barrierName, numWorkers);
+		contacts = new Contacts(numWorkers, state.size);
+		busyNanos = new long[numWorkers];
+		metrics = new StepMetrics(numWorkers);
+		if (traceName != null)
+			trace = new Trace(numWorkers,
+			        numTimeSteps == 0 ? 0 : numTimeSteps - startStep);
+		if (partition.equals(ForceKernel.FORKJOIN))
+			forkJoin = new ForkJoinForces(numWorkers, busyNanos, kernel);
+	}
+	
+	
+	
+	/*
+	 * print heap bytes each worker allocated per step once warmed up, and
+	 * exit with status 1 if any worker allocates on every step. the
+	 * smallest object is 16 bytes, so anything less per step is one-off
+	 * buffer growth or JIT noise spread over the run
+	 */
+	private void checkAllocation(ArrayList<Worker> workers) {
+		
+		boolean clean = true;
+		StringBuilder line = new StringBuilder();
+		
+		for (Worker w : workers) {
+			final double perStep = (double) (w.allocatedTo - w.allocatedFrom)
+			        / Math.max(1, w.measuredSteps);
+			line.append(" ").append(String.format("%.1f", perStep));
+			if (perStep >= MIN_OBJECT_BYTES)
+				clean = false;
+		}
+		
+		System.out.println("bytes allocated per step, per worker:" + line);
+		
+		if (!clean) {
+			System.out.println("allocation check FAILED");
+			System.exit(1);
+		}
+		System.out.println("allocation check passed");
+	}
+	
+	
+	
+	/*
+	 * print how long each worker spent on the gravity pair loop, and how far
+	 * the slowest is from the mean
+	 */
+	private void reportBusyTime() {
+		
+		if (!gravity || barnesHut)
+			return;
+		
+		long total = 0;
+		long max = 0;
+		StringBuilder line = new StringBuilder();
+		for (long nanos : busyNanos) {
+			total += nanos;
+			max = Math.max(max, nanos);
+			line.append(" ").append(nanos / 1000000);
+		}
+		
+		final double mean = (double) total / busyNanos.length;
+		
+		System.out.println("gravity busy time per "
+		        + (forkJoin != null ? "pool thread" : "worker") + " (ms):"
+		        + line);
+		System.out.println(String.format("gravity imbalance (max / mean): %.3f",
+		        mean == 0 ? 1 : max / mean));
 	}
 	
 	
@@ -285,24 +883,7 @@ public class FreeBodies extends Observable {
 	 */
 	private void writeToFile(String name) throws IOException {
 		
-		BufferedWriter bw = new BufferedWriter(new FileWriter(name));
-		
-		for (Body body : bodies) {
-			StringBuilder line = new StringBuilder();
-			line.append(String.format("%2d", body.getID()));
-			line.append(": Position (");
-			line.append(String.format("%+09.3f", body.getPosition().x));
-			line.append(",");
-			line.append(String.format("%+09.3f", body.getPosition().y));
-			line.append("), Velocity (");
-			line.append(String.format("%+09.3f", body.getVelocity().x));
-			line.append(",");
-			line.append(String.format("%+09.3f", body.getVelocity().y));
-			line.append(")\n");
-			
-			bw.write(line.toString());
-		}
-		bw.close();
+		new StateWriter().write(name, bodies, state);
 	}
 	
 	
@@ -310,9 +891,9 @@ public class FreeBodies extends Observable {
 	/*
 	 * record number of collisions
 	 */
-	synchronized void recordCollision() {
+	synchronized void recordCollisions(int count) {
 		
-		this.numCollisions++;
+		this.numCollisions += count;
 	}
 	
 	
@@ -366,27 +947,83 @@ public class FreeBodies extends Observable {
 	
 	/*
 	 * wrapper method
-	 * called when a Body(s) has been changed
+	 * called when a Body(s) has been changed. while paused, the change is
+	 * published for the GUI to paint
 	 */
 	public void updateObservers() {
 		
 		if (!usingGUI)
 			return;
 		
+		if (!play)
+			editFrame = frames.publish(fill(editFrame, -1));
+		
+		refreshObservers();
+	}
+	
+	
+	
+	/*
+	 * let observers read the model again, without publishing anything.
+	 * called by the GUI, at most once per frame painted
+	 */
+	void refreshObservers() {
+		
 		setChanged();
 		notifyObservers();
 	}
 	
 	
 	
+	/*
+	 * publish the bodies for the GUI at the end of a step. called by worker
+	 * 0 only, once every worker is past the step's last barrier
+	 */
+	void publishStep(long step) {
+		
+		if (usingGUI)
+			stepFrame = frames.publish(fill(stepFrame, step));
+	}
+	
+	
+	
+	private Frame fill(Frame frame, long step) {
+		
+		frame.fill(bodies, state, step);
+		
+		return frame;
+	}
+	
+	
+	
 	public void addBody(Body body) {
 		
+		body.attach(state);
 		bodies.add(body);
 		updateObservers();
 	}
 	
 	
 	
+	/*
+	 * remove body from the simulation, compacting the body store
+	 */
+	public void removeBody(Body body) {
+		
+		if (!bodies.remove(body))
+			return;
+		
+		final int slot = body.getIndex();
+		body.detach();
+		state.remove(slot);
+		for (int i = slot; i < bodies.size(); i++)
+			bodies.get(i).setIndex(i);
+		
+		updateObservers();
+	}
+	
+	
+	
 	/*
 	 * return color for given body
 	 */
@@ -427,7 +1064,8 @@ public class FreeBodies extends Observable {
 	
 	
 	/*
-	 * getter
+	 * getter. steps per simulated second: each step moves the bodies 1/fps
+	 * of a second, however fast steps are taken or frames painted
 	 */
 	public int getFPS() {
 		
@@ -447,32 +1085,41 @@ public class FreeBodies extends Observable {
 	
 	
 	/*
-	 * setter
+	 * getter. steps taken per second of wall time in GUI mode, or UNCAPPED
 	 */
-	public void setPlay(boolean b) {
+	public int getStepsPerSecond() {
 		
-		this.play = b;
-		updateObservers();
+		return this.stepsPerSecond;
 	}
 	
 	
 	
 	/*
-	 * getter
+	 * setter. takes effect from the next step, while playing too
 	 */
-	public boolean isPlaying() {
+	public void setStepsPerSecond(int rate) {
 		
-		return this.play;
+		this.stepsPerSecond = rate;
+	}
+	
+	
+	
+	/*
+	 * setter
+	 */
+	public void setPlay(boolean b) {
+		
+		this.play = b;
+		updateObservers();
 	}
 	
 	
 	
 	/*
-	 * increment workersDone. called right before a worker is terminated
+	 * getter
 	 */
-	synchronized void oneMoreWorkerDone() {
+	public boolean isPlaying() {
 		
-		workersDone++;
-		// System.out.println(workersDone + "/" + numWorkers);
+		return this.play;
 	}
 }
@@ -67,9 +67,13 @@ public class FreeBodyGUI extends JFrame {
 	
 	// Options
 	private JCheckBox				optNumbers;
+	private JCheckBox				optDensity;
+	private JCheckBox				optByMass;
 	private JCheckBox				optGravity;
 	private JCheckBox				optWalls;
 	private JSlider					fps;
+	private JSlider					pace;
+	private JSlider					render;
 	private JSlider					gCon;
 	private static final String		STARTSTR		= "Start";
 	private static final String		PAUSESTR		= "Pause";
@@ -110,7 +114,6 @@ public class FreeBodyGUI extends JFrame {
 		this.universe.setBackground(Color.BLACK);
 		this.universe.addMouseListener(new MoveListener());
 		mainPanel.add(this.universe, BorderLayout.CENTER);
-		model.addObserver((Observer) universe);
 		
 		this.options = new JPanel();
 		TitledBorder tbo = BorderFactory.createTitledBorder("Universe Options");
@@ -192,6 +195,20 @@ public class FreeBodyGUI extends JFrame {
 		this.optNumbers.setForeground(Color.WHITE);
 		this.options.add(optNumbers);
 		
+		this.optDensity = new JCheckBox("Density");
+		this.optDensity.setSelected(universe.density);
+		this.optDensity.addItemListener(new OptionsListener());
+		this.optDensity.setBackground(Color.BLACK);
+		this.optDensity.setForeground(Color.WHITE);
+		this.options.add(optDensity);
+		
+		this.optByMass = new JCheckBox("By Mass");
+		this.optByMass.setSelected(universe.byMass);
+		this.optByMass.addItemListener(new OptionsListener());
+		this.optByMass.setBackground(Color.BLACK);
+		this.optByMass.setForeground(Color.WHITE);
+		this.options.add(optByMass);
+		
 		this.optWalls = new JCheckBox("Corral");
 		this.optWalls.setSelected(model.walls);
 		this.optWalls.setBackground(Color.BLACK);
@@ -229,7 +246,7 @@ public class FreeBodyGUI extends JFrame {
 		gCon.setLabelTable(gConLabelTable);
 		gCon.setPaintLabels(true);
 		
-		String fpsStub = "Frames/Sec: ";
+		String fpsStub = "Time Step: 1/";
 		JLabel fpsLabel = new JLabel(fpsStub + model.getFPS());
 		fpsLabel.setBackground(Color.BLACK);
 		fpsLabel.setForeground(Color.WHITE);
@@ -252,6 +269,65 @@ public class FreeBodyGUI extends JFrame {
 		fps.setLabelTable(fpsLabelTable);
 		fps.setPaintLabels(true);
 		
+		String paceStub = "Steps/Sec: ";
+		JLabel paceLabel = new JLabel(paceStub
+		        + paceText(model.getStepsPerSecond()));
+		paceLabel.setBackground(Color.BLACK);
+		paceLabel.setForeground(Color.WHITE);
+		paceLabel.setHorizontalAlignment(SwingConstants.CENTER);
+		this.options.add(paceLabel);
+		final int paceMAX = 2000;
+		this.pace = new JSlider(JSlider.HORIZONTAL, FreeBodies.UNCAPPED,
+		        paceMAX, Math.min(paceMAX, model.getStepsPerSecond()));
+		pace.setBackground(Color.BLACK);
+		pace.setForeground(Color.WHITE);
+		pace.addChangeListener(new SliderListener(pace, paceLabel, paceStub));
+		this.options.add(pace);
+		Hashtable<Integer, JLabel> paceLabelTable = new Hashtable<>();
+		JLabel paceMinLabel = new JLabel(paceText(FreeBodies.UNCAPPED));
+		paceMinLabel.setForeground(Color.WHITE);
+		paceLabelTable.put(FreeBodies.UNCAPPED, paceMinLabel);
+		JLabel paceMaxLabel = new JLabel("" + paceMAX);
+		paceMaxLabel.setForeground(Color.WHITE);
+		paceLabelTable.put(paceMAX, paceMaxLabel);
+		pace.setLabelTable(paceLabelTable);
+		pace.setPaintLabels(true);
+		
+		String renderStub = "Render FPS: ";
+		JLabel renderLabel = new JLabel(renderStub + universe.getFrameRate());
+		renderLabel.setBackground(Color.BLACK);
+		renderLabel.setForeground(Color.WHITE);
+		renderLabel.setHorizontalAlignment(SwingConstants.CENTER);
+		this.options.add(renderLabel);
+		final int renderMAX = 240, renderMIN = 10;
+		this.render = new JSlider(JSlider.HORIZONTAL, renderMIN, renderMAX,
+		        Math.max(renderMIN, Math.min(renderMAX,
+		                universe.getFrameRate())));
+		render.setBackground(Color.BLACK);
+		render.setForeground(Color.WHITE);
+		render.addChangeListener(new SliderListener(render, renderLabel,
+		        renderStub));
+		this.options.add(render);
+		Hashtable<Integer, JLabel> renderLabelTable = new Hashtable<>();
+		JLabel renderMinLabel = new JLabel("" + renderMIN);
+		renderMinLabel.setForeground(Color.WHITE);
+		renderLabelTable.put(renderMIN, renderMinLabel);
+		JLabel renderMaxLabel = new JLabel("" + renderMAX);
+		renderMaxLabel.setForeground(Color.WHITE);
+		renderLabelTable.put(renderMAX, renderMaxLabel);
+		render.setLabelTable(renderLabelTable);
+		render.setPaintLabels(true);
+		
+	}
+	
+	
+	
+	/*
+	 * steps per second as shown, "max" when uncapped
+	 */
+	private static String paceText(int rate) {
+		
+		return rate == FreeBodies.UNCAPPED ? "max" : "" + rate;
 	}
 	
 	
@@ -467,6 +543,16 @@ public class FreeBodyGUI extends JFrame {
 					model.setFPS(val);
 				}
 			}
+			else if (slider.equals(pace)) {
+				// free to change while playing: it paces, the physics is
+				// the same
+				label.setText(stub + paceText(val));
+				model.setStepsPerSecond(val);
+			}
+			else if (slider.equals(render)) {
+				label.setText(stub + val);
+				universe.setFrameRate(val);
+			}
 			else if (slider.equals(gCon)) {
 				if (model.isPlaying()) {
 					gCon.setValue((int) model.getG());
@@ -527,11 +613,11 @@ public class FreeBodyGUI extends JFrame {
 		@Override
 		public void mouseReleased(MouseEvent e) {
 			
-			if (bodySelected == null || model.isPlaying())
+			if (bodySelected == null || model.isPlaying() || universe.panned())
 				return;
 			
-			double x = e.getX();
-			double y = e.getY();
+			double x = universe.toWorldX(e.getX());
+			double y = universe.toWorldY(e.getY());
 			
 			Body temp = new Body(0, bodySelected.getRadius(), null,
 			        new Point.Double(x, y), -1, 1);
@@ -540,7 +626,7 @@ public class FreeBodyGUI extends JFrame {
 				if (rival.equals(bodySelected))
 					continue;
 				
-				if (temp.doIntersect(rival, model.getFPS(), -1))
+				if (temp.doIntersect(rival, model.getFPS()))
 					return;
 			}
 			
@@ -654,6 +740,12 @@ public class FreeBodyGUI extends JFrame {
 			if (box.equals(optNumbers)) {
 				universe.showNumbers = !universe.showNumbers;
 			}
+			else if (box.equals(optDensity)) {
+				universe.density = !universe.density;
+			}
+			else if (box.equals(optByMass)) {
+				universe.byMass = !universe.byMass;
+			}
 			else if (box.equals(optGravity)) {
 				if (model.isPlaying())
 					optGravity.setSelected(model.gravity);
@@ -764,7 +856,7 @@ public class FreeBodyGUI extends JFrame {
 						return;
 					BodyControl ctrl = bodyCtrlMap.get(body);
 					controlPanel.remove(ctrl);
-					model.bodies.remove(body);
+					model.removeBody(body);
 					controlScrollPane.validate();
 					break;
 				default:
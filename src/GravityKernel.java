@@ -0,0 +1,58 @@
+/*
+ * @author Eric M Evans
+ *
+ * direct-sum gravity pair loop, as ForceKernel.accumulate. the vector
+ * kernel lives in vector/ and needs the jdk.incubator.vector module, both
+ * to compile and to run, so it is loaded by name; without the module the
+ * scalar kernel is used instead.
+ *
+ * the kernels agree to within TOLERANCE: for every body, the difference of
+ * the two forces is at most TOLERANCE times the largest force in the
+ * system. each pair's force is figured the same way in both; only the
+ * order in which a hero's forces are summed differs.
+ */
+public interface GravityKernel {
+	
+	// names accepted by create
+	static final String	SCALAR		= "scalar";
+	static final String	VECTOR		= "vector";
+	
+	static final String[] NAMES = { SCALAR, VECTOR };
+	
+	static final double	TOLERANCE	= 1e-12;
+	
+	
+	
+	/*
+	 * add the force of every pair (i, k), k > i, to force row `row`, for
+	 * hero rows i = from, from + step, ... below to
+	 */
+	void accumulate(BodyStore s, int from, int to, int step, int row,
+	        double G);
+	
+	
+	
+	/*
+	 * return kernel of the given name, or null if there is none. asking for
+	 * the vector kernel without its module gives the scalar kernel
+	 */
+	static GravityKernel create(String name) {
+		
+		switch (name) {
+			case SCALAR:
+				return ForceKernel::accumulate;
+			case VECTOR:
+				try {
+					return (GravityKernel) Class.forName("VectorForceKernel")
+					        .getDeclaredConstructor().newInstance();
+				}
+				catch (ReflectiveOperationException | LinkageError e) {
+					System.out.println("vector kernel unavailable (" + e
+					        + "), using the scalar kernel");
+					return ForceKernel::accumulate;
+				}
+			default:
+				return null;
+		}
+	}
+}
@@ -0,0 +1,28 @@
+import java.util.concurrent.Phaser;
+
+/*
+ * @author Eric M Evans
+ * 
+ * barrier backed by java.util.concurrent.Phaser. a waiter that has to
+ * block queues a fresh node, so this barrier allocates on every step and
+ * fails --alloc-check.
+ */
+public class PhaserBarrier implements Barrier {
+	
+	private final Phaser phaser;
+	
+	
+	
+	public PhaserBarrier(int parties) {
+		
+		this.phaser = new Phaser(parties);
+	}
+	
+	
+	
+	@Override
+	public void await(int id) {
+		
+		phaser.arriveAndAwaitAdvance();
+	}
+}
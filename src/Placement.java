@@ -0,0 +1,126 @@
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+/*
+ * @author Eric M Evans
+ *
+ * places equal bodies apart from one another in O(N): the field is cut
+ * into a grid of square cells, as large as still leaves one cell per
+ * body, the bodies are dealt at random to cells, and each sits at a
+ * random point of its cell at least a radius from every edge. bodies in
+ * different cells can therefore never touch. the same seed gives the same
+ * field, and each body's jitter depends only on the seed and its index,
+ * so it is figured in parallel.
+ */
+public class Placement {
+	
+	private final double	left, top;
+	private final double	cell;		// side
+	private final int		columns, rows;
+	
+	
+	
+	/*
+	 * the grid for n bodies of the given radius in the field, or the reason
+	 * none fits, as an IllegalArgumentException
+	 */
+	public Placement(int n, double radius, double left, double top,
+	        double right, double bottom) {
+		
+		final double width = right - left;
+		final double height = bottom - top;
+		final double diameter = 2 * radius;
+		final long most = capacity(width, height, diameter);
+		
+		if (n > most)
+			throw new IllegalArgumentException(String.format(Locale.ROOT,
+			        "%d bodies of radius %.1f cannot be placed apart in the "
+			                + "%.0f x %.0f field: at most %d fit, one to each "
+			                + "%.1f x %.1f cell. they would cover %.1f%% of "
+			                + "it; %d cover %.1f%%", n, radius, width, height,
+			        most, diameter, diameter,
+			        100 * n * Math.PI * radius * radius / (width * height),
+			        most,
+			        100 * most * Math.PI * radius * radius / (width * height)));
+		
+		// largest square cell that still leaves n cells: with a columns,
+		// the side is bounded by the width and by the rows n needs
+		double side = 0;
+		int across = 1;
+		for (int a = 1; a <= n; a++) {
+			final double fits = Math.min(width / a, height / ((n + a - 1) / a));
+			if (fits > side) {
+				side = fits;
+				across = a;
+			}
+		}
+		
+		this.left = left;
+		this.top = top;
+		this.cell = side;
+		this.columns = across;
+		this.rows = (n + across - 1) / across;
+	}
+	
+	
+	
+	/*
+	 * return how many cells of the given side fit in the field
+	 */
+	private static long capacity(double width, double height, double side) {
+		
+		if (side <= 0 || width < side || height < side)
+			return 0;
+		
+		return (long) Math.floor(width / side) * (long) Math.floor(height / side);
+	}
+	
+	
+	
+	/*
+	 * write n centres, bodies of the given radius, into x and y
+	 */
+	void place(final double[] x, final double[] y, final int n,
+	        final double radius, final long seed) {
+		
+		final int cells = (int) Math.min(Integer.MAX_VALUE, (long) columns
+		        * rows);
+		
+		// deal the bodies to cells: a partial Fisher-Yates shuffle
+		final int[] order = new int[cells];
+		for (int c = 0; c < cells; c++)
+			order[c] = c;
+		long state = seed;
+		for (int i = 0; i < n; i++) {
+			state = mix(state + 0x9E3779B97F4A7C15L);
+			final int j = i + (int) Math.floorMod(state, (long) (cells - i));
+			final int t = order[i];
+			order[i] = order[j];
+			order[j] = t;
+		}
+		
+		final double free = cell - 2 * radius;
+		
+		IntStream.range(0, n).parallel().forEach(i -> {
+			final long bits = mix(seed ^ mix(i + 1L));
+			final double u = (bits >>> 11) * 0x1.0p-53;
+			final double v = (mix(bits) >>> 11) * 0x1.0p-53;
+			
+			x[i] = left + (order[i] % columns) * cell + radius + u * free;
+			y[i] = top + (order[i] / columns) * cell + radius + v * free;
+		});
+	}
+	
+	
+	
+	/*
+	 * SplitMix64 finalizer
+	 */
+	private static long mix(long z) {
+		
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		
+		return z ^ (z >>> 31);
+	}
+}
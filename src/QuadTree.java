@@ -0,0 +1,352 @@
+import java.util.Arrays;
+
+/*
+ * @author Eric M Evans
+ *
+ * Barnes-Hut quadtree of mass centroids, rebuilt every step from the
+ * BodyStore. nodes live in flat arrays that are reused between steps;
+ * children of a node are created together, always after their parent.
+ */
+public class QuadTree {
+	
+	// cells stop splitting here; bodies sharing a deepest leaf are chained
+	static final int	MAX_DEPTH	= 48;
+	static final int	STACK_SIZE	= 4 * MAX_DEPTH + 8;
+	
+	private double[]	cellX;
+	private double[]	cellY;
+	private double[]	half;
+	private double[]	comX;
+	private double[]	comY;
+	private double[]	nodeMass;
+	private int[]		depth;
+	private int[]		child;		// 4 per node, -1 for a leaf
+	private int[]		first;		// first body of a leaf, -1 if empty
+	private int[]		next;		// per body, next body in the same leaf
+	private int			nodes;
+	
+	
+	
+	public QuadTree() {
+		
+		allocate(64, 16);
+	}
+	
+	
+	
+	/*
+	 * (re)size node and body arrays
+	 */
+	private void allocate(int nodeCapacity, int bodyCapacity) {
+		
+		cellX = new double[nodeCapacity];
+		cellY = new double[nodeCapacity];
+		half = new double[nodeCapacity];
+		comX = new double[nodeCapacity];
+		comY = new double[nodeCapacity];
+		nodeMass = new double[nodeCapacity];
+		depth = new int[nodeCapacity];
+		child = new int[4 * nodeCapacity];
+		first = new int[nodeCapacity];
+		next = new int[bodyCapacity];
+	}
+	
+	
+	
+	/*
+	 * build the tree over the current positions of every body in s
+	 */
+	public void build(BodyStore s) {
+		
+		final int n = s.size;
+		
+		if (next.length < n)
+			next = new int[s.px.length];
+		
+		// bounding square
+		double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+		double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+		for (int i = 0; i < n; i++) {
+			minX = Math.min(minX, s.px[i]);
+			minY = Math.min(minY, s.py[i]);
+			maxX = Math.max(maxX, s.px[i]);
+			maxY = Math.max(maxY, s.py[i]);
+		}
+		final double side = Math.max(maxX - minX, maxY - minY) + 1;
+		
+		nodes = 0;
+		newNode((minX + maxX) / 2, (minY + maxY) / 2, side / 2, 0);
+		
+		for (int i = 0; i < n; i++)
+			insert(s, i);
+		
+		summarize(s);
+	}
+	
+	
+	
+	/*
+	 * return index of a new empty leaf
+	 */
+	private int newNode(double x, double y, double h, int d) {
+		
+		if (nodes == cellX.length)
+			grow();
+		
+		final int node = nodes++;
+		
+		cellX[node] = x;
+		cellY[node] = y;
+		half[node] = h;
+		depth[node] = d;
+		first[node] = -1;
+		for (int q = 0; q < 4; q++)
+			child[4 * node + q] = -1;
+		
+		return node;
+	}
+	
+	
+	
+	/*
+	 * double node capacity, keeping existing nodes
+	 */
+	private void grow() {
+		
+		final int cap = 2 * cellX.length;
+		
+		cellX = Arrays.copyOf(cellX, cap);
+		cellY = Arrays.copyOf(cellY, cap);
+		half = Arrays.copyOf(half, cap);
+		comX = Arrays.copyOf(comX, cap);
+		comY = Arrays.copyOf(comY, cap);
+		nodeMass = Arrays.copyOf(nodeMass, cap);
+		depth = Arrays.copyOf(depth, cap);
+		child = Arrays.copyOf(child, 4 * cap);
+		first = Arrays.copyOf(first, cap);
+	}
+	
+	
+	
+	/*
+	 * return which child quadrant of node holds (x, y)
+	 */
+	private int quadrant(int node, double x, double y) {
+		
+		return (x >= cellX[node] ? 1 : 0) + (y >= cellY[node] ? 2 : 0);
+	}
+	
+	
+	
+	/*
+	 * add body b, splitting occupied leaves on the way down
+	 */
+	private void insert(BodyStore s, int b) {
+		
+		final double x = s.px[b];
+		final double y = s.py[b];
+		int node = 0;
+		
+		while (true) {
+			if (child[4 * node] != -1) {
+				node = child[4 * node + quadrant(node, x, y)];
+				continue;
+			}
+			
+			if (first[node] == -1 || depth[node] >= MAX_DEPTH) {
+				next[b] = first[node];
+				first[node] = b;
+				return;
+			}
+			
+			// split: an occupied leaf above MAX_DEPTH holds one body
+			final double h = half[node] / 2;
+			final int d = depth[node] + 1;
+			for (int q = 0; q < 4; q++) {
+				final double qx = cellX[node] + ((q & 1) == 0 ? -h : h);
+				final double qy = cellY[node] + ((q & 2) == 0 ? -h : h);
+				final int c = newNode(qx, qy, h, d);
+				child[4 * node + q] = c;
+			}
+			
+			final int old = first[node];
+			first[node] = -1;
+			final int c = child[4 * node
+			        + quadrant(node, s.px[old], s.py[old])];
+			next[old] = -1;
+			first[c] = old;
+		}
+	}
+	
+	
+	
+	/*
+	 * fill in mass and centre of mass, children before parents
+	 */
+	private void summarize(BodyStore s) {
+		
+		for (int node = nodes - 1; node >= 0; node--) {
+			double m = 0, mx = 0, my = 0;
+			
+			if (child[4 * node] == -1) {
+				for (int b = first[node]; b != -1; b = next[b]) {
+					m += s.mass[b];
+					mx += s.mass[b] * s.px[b];
+					my += s.mass[b] * s.py[b];
+				}
+			}
+			else {
+				for (int q = 0; q < 4; q++) {
+					final int c = child[4 * node + q];
+					m += nodeMass[c];
+					mx += nodeMass[c] * comX[c];
+					my += nodeMass[c] * comY[c];
+				}
+			}
+			
+			nodeMass[node] = m;
+			if (m > 0) {
+				comX[node] = mx / m;
+				comY[node] = my / m;
+			}
+		}
+	}
+	
+	
+	
+	/*
+	 * walk the tree for body i and add its gravitational force to
+	 * element i of force row `row`. a cell is taken as a point mass
+	 * when it does not hold body i and cell width / distance < theta.
+	 * stack is scratch space of at least STACK_SIZE. returns the number of
+	 * bodies and cells that acted on body i
+	 */
+	public int addForce(BodyStore s, int i, int row, double G, double theta,
+	        int[] stack) {
+		
+		final double heroPX = s.px[i];
+		final double heroPY = s.py[i];
+		final double heroMass = s.mass[i];
+		final double theta2 = theta * theta;
+		double heroFX = 0;
+		double heroFY = 0;
+		int interactions = 0;
+		
+		int top = 0;
+		stack[top++] = 0;
+		
+		while (top > 0) {
+			final int node = stack[--top];
+			
+			if (nodeMass[node] == 0)
+				continue;
+			
+			if (child[4 * node] == -1) {
+				for (int b = first[node]; b != -1; b = next[b]) {
+					if (b == i)
+						continue;
+					
+					final double directionX = s.px[b] - heroPX;
+					final double directionY = s.py[b] - heroPY;
+					final double distance = Math.sqrt(
+					        directionX * directionX + directionY * directionY);
+					final double magnitude = (G * heroMass * s.mass[b])
+					        / (distance * distance);
+					
+					heroFX += magnitude * directionX / distance;
+					heroFY += magnitude * directionY / distance;
+					interactions++;
+				}
+				continue;
+			}
+			
+			final double directionX = comX[node] - heroPX;
+			final double directionY = comY[node] - heroPY;
+			final double dist2 = directionX * directionX
+			        + directionY * directionY;
+			final double width = 2 * half[node];
+			final boolean holdsHero = Math
+			        .abs(heroPX - cellX[node]) <= half[node]
+			        && Math.abs(heroPY - cellY[node]) <= half[node];
+			
+			if (!holdsHero && width * width < theta2 * dist2) {
+				final double distance = Math.sqrt(dist2);
+				final double magnitude = (G * heroMass * nodeMass[node])
+				        / dist2;
+				
+				heroFX += magnitude * directionX / distance;
+				heroFY += magnitude * directionY / distance;
+				interactions++;
+			}
+			else {
+				for (int q = 0; q < 4; q++)
+					stack[top++] = child[4 * node + q];
+			}
+		}
+		
+		s.forceX[row][i] += heroFX;
+		s.forceY[row][i] += heroFY;
+		
+		return interactions;
+	}
+	
+	
+	
+	/*
+	 * compare tree forces against exact direct-sum forces on the current
+	 * state. returns { rms relative error, max relative error }, over the
+	 * bodies whose exact force is not zero
+	 */
+	public static double[] forceError(BodyStore s, double G, double theta) {
+		
+		final int n = s.size;
+		final double[] directX = new double[n];
+		final double[] directY = new double[n];
+		
+		for (int i = 0; i < n; i++)
+			for (int k = i + 1; k < n; k++) {
+				final double directionX = s.px[k] - s.px[i];
+				final double directionY = s.py[k] - s.py[i];
+				final double distance = Math.sqrt(
+				        directionX * directionX + directionY * directionY);
+				final double magnitude = (G * s.mass[i] * s.mass[k])
+				        / (distance * distance);
+				
+				directX[i] += magnitude * directionX / distance;
+				directY[i] += magnitude * directionY / distance;
+				directX[k] -= magnitude * directionX / distance;
+				directY[k] -= magnitude * directionY / distance;
+			}
+		
+		// tree forces land in a scratch store with a single force row
+		final BodyStore scratch = new BodyStore(n, 1);
+		for (int i = 0; i < n; i++)
+			scratch.add(s.mass[i], s.radius[i], s.px[i], s.py[i], s.vx[i],
+			        s.vy[i]);
+		
+		final QuadTree tree = new QuadTree();
+		final int[] stack = new int[STACK_SIZE];
+		tree.build(scratch);
+		
+		double sumSq = 0;
+		double max = 0;
+		int counted = 0;
+		for (int i = 0; i < n; i++) {
+			tree.addForce(scratch, i, 0, G, theta, stack);
+			
+			final double errX = scratch.forceX[0][i] - directX[i];
+			final double errY = scratch.forceY[0][i] - directY[i];
+			final double exact = Math
+			        .sqrt(directX[i] * directX[i] + directY[i] * directY[i]);
+			if (exact == 0)
+				continue;
+			
+			final double rel = Math.sqrt(errX * errX + errY * errY) / exact;
+			sumSq += rel * rel;
+			max = Math.max(max, rel);
+			counted++;
+		}
+		
+		return new double[] { Math.sqrt(sumSq / Math.max(counted, 1)), max };
+	}
+}
@@ -0,0 +1,198 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+
+/*
+ * @author Eric M Evans
+ *
+ * sweeps worker and body counts in one JVM, running the whole simulation
+ * from the same seeded start every time. each point is warmed up, then
+ * repeated, and reported as median and percentiles of the run time, with
+ * speedup and parallel efficiency over one worker. results go to a table
+ * on the console and to <prefix>.csv and <prefix>.json, whose numbers
+ * always use a decimal point.
+ */
+public class ScalingBench {
+	
+	private static final int[]	WORKERS		= { 1, 2, 4, 8, 16, 32 };
+	private static final int[]	BODIES		= { 320, 1000 };
+	private static final long	PAIR_WORK	= 20000000L;	// pairs per run
+	private static final int	WARMUP		= 2;
+	private static final int	REPEATS		= 7;
+	private static final int	MASS		= 50;
+	
+	
+	
+	/*
+	 * one point of the sweep, its run times sorted
+	 */
+	private static class Point {
+		
+		int			bodies;
+		int			workers;
+		int			steps;
+		double[]	millis;
+		double		speedup;
+		double		efficiency;
+		
+		
+		
+		/*
+		 * return the q-th quantile, 0 to 1, by nearest rank
+		 */
+		double quantile(double q) {
+			
+			final int rank = (int) Math.ceil(q * millis.length);
+			
+			return millis[Math.max(0, rank - 1)];
+		}
+	}
+	
+	
+	
+	/*
+	 * run the sweep and write the results
+	 */
+	public static void run(String prefix) {
+		
+		System.out.println("scaling, " + REPEATS + " runs per point after "
+		        + WARMUP + " warm-up runs, seed " + FreeBodies.DEFAULT_SEED);
+		System.out.println(String.format("%8s %8s %8s %10s %10s %10s %8s %8s",
+		        "bodies", "workers", "steps", "p10 ms", "median ms", "p90 ms",
+		        "speedup", "effic."));
+		
+		ArrayList<Point> points = new ArrayList<>();
+		
+		for (int n : BODIES) {
+			final int steps = (int) Math.max(20,
+			        PAIR_WORK / ForceKernel.pairsBefore(n, n));
+			double serial = 0;
+			
+			for (int workers : WORKERS) {
+				Point p = new Point();
+				p.bodies = n;
+				p.workers = workers;
+				p.steps = steps;
+				p.millis = new double[REPEATS];
+				
+				for (int r = 0; r < WARMUP; r++)
+					time(workers, n, steps);
+				for (int r = 0; r < REPEATS; r++)
+					p.millis[r] = time(workers, n, steps) / 1e6;
+				Arrays.sort(p.millis);
+				
+				if (workers == 1)
+					serial = p.quantile(0.5);
+				p.speedup = serial / p.quantile(0.5);
+				p.efficiency = p.speedup / workers;
+				points.add(p);
+				
+				System.out.println(String.format(
+				        "%8d %8d %8d %10.1f %10.1f %10.1f %8.2f %8.2f", n,
+				        workers, steps, p.quantile(0.1), p.quantile(0.5),
+				        p.quantile(0.9), p.speedup, p.efficiency));
+			}
+		}
+		
+		try {
+			writeCSV(prefix + ".csv", points);
+			writeJSON(prefix + ".json", points);
+			System.out.println("wrote " + prefix + ".csv and " + prefix
+			        + ".json");
+		}
+		catch (IOException e) {
+			System.out.println("Error printing to file");
+			e.printStackTrace();
+		}
+	}
+	
+	
+	
+	/*
+	 * return nanoseconds workers take for the given steps over n seeded
+	 * bodies, excluding set-up
+	 */
+	private static long time(int workers, int n, int steps) {
+		
+		final FreeBodies model = new FreeBodies(workers, n, MASS);
+		model.numTimeSteps = steps;
+		
+		final long start = System.nanoTime();
+		try {
+			model.runWorkers();
+		}
+		catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+		
+		return System.nanoTime() - start;
+	}
+	
+	
+	
+	/*
+	 * write one line per point
+	 */
+	private static void writeCSV(String name, ArrayList<Point> points)
+	        throws IOException {
+		
+		BufferedWriter bw = new BufferedWriter(new FileWriter(name));
+		
+		bw.write("bodies,workers,steps,repeats,min_ms,p10_ms,median_ms,"
+		        + "p90_ms,max_ms,steps_per_sec,speedup,efficiency\n");
+		for (Point p : points)
+			bw.write(String.format(Locale.ROOT,
+			        "%d,%d,%d,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.1f,%.4f,%.4f\n",
+			        p.bodies, p.workers, p.steps, REPEATS, p.millis[0],
+			        p.quantile(0.1), p.quantile(0.5), p.quantile(0.9),
+			        p.millis[REPEATS - 1], p.steps / (p.quantile(0.5) / 1000),
+			        p.speedup, p.efficiency));
+		bw.close();
+	}
+	
+	
+	
+	/*
+	 * write the sweep settings and every point, with all its run times
+	 */
+	private static void writeJSON(String name, ArrayList<Point> points)
+	        throws IOException {
+		
+		BufferedWriter bw = new BufferedWriter(new FileWriter(name));
+		
+		bw.write("{\n");
+		bw.write("  \"seed\": " + FreeBodies.DEFAULT_SEED + ",\n");
+		bw.write("  \"mass\": " + MASS + ",\n");
+		bw.write("  \"warmup\": " + WARMUP + ",\n");
+		bw.write("  \"repeats\": " + REPEATS + ",\n");
+		bw.write("  \"processors\": "
+		        + Runtime.getRuntime().availableProcessors() + ",\n");
+		bw.write("  \"java\": \"" + System.getProperty("java.version")
+		        + "\",\n");
+		bw.write("  \"points\": [\n");
+		
+		for (int i = 0; i < points.size(); i++) {
+			final Point p = points.get(i);
+			StringBuilder runs = new StringBuilder();
+			for (double ms : p.millis)
+				runs.append(runs.length() == 0 ? "" : ", ")
+				        .append(String.format(Locale.ROOT, "%.3f", ms));
+			
+			bw.write(String.format(Locale.ROOT,
+			        "    { \"bodies\": %d, \"workers\": %d, "
+			        + "\"steps\": %d, \"median_ms\": %.3f, \"p10_ms\": %.3f, "
+			        + "\"p90_ms\": %.3f, \"speedup\": %.4f, "
+			        + "\"efficiency\": %.4f, \"runs_ms\": [%s] }%s\n",
+			        p.bodies, p.workers, p.steps, p.quantile(0.5),
+			        p.quantile(0.1), p.quantile(0.9), p.speedup, p.efficiency,
+			        runs, i + 1 < points.size() ? "," : ""));
+		}
+		
+		bw.write("  ]\n");
+		bw.write("}\n");
+		bw.close();
+	}
+}
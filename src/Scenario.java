@@ -0,0 +1,471 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+
+/*
+ * @author Eric M Evans
+ *
+ * initial conditions from a file, for --scenario: every body's mass,
+ * radius, position and velocity. two formats, told apart by the first
+ * bytes:
+ *
+ * binary, little-endian: magic "FBSCEN01", bodies N (long), then N each
+ * of mass, radius, px, py, vx, vy (float64), one column after another.
+ * each column is mapped and copied straight into the store.
+ *
+ * CSV: one body per line, "mass,radius,x,y,vx,vy". blank lines and lines
+ * starting with '#' are skipped, and so is the first other line when it
+ * does not start with a number, as a header.
+ * the mapped file is cut into chunks at line ends, and a thread per chunk
+ * counts its bodies and then parses them into place.
+ *
+ * every value must be finite, and mass and radius positive; a body that
+ * is not fails the load, naming its line, or its place in a binary file.
+ */
+public class Scenario {
+	
+	static final byte[]			MAGIC	= "FBSCEN01"
+	        .getBytes(StandardCharsets.US_ASCII);
+	private static final int	COLUMNS	= 6;
+	private static final String[]	NAMES	= { "mass", "radius", "x", "y",
+	        "vx", "vy" };
+	
+	// exact powers of ten, for the fast path of parsing a number
+	private static final double[]	TENS	= new double[23];
+	static {
+		TENS[0] = 1;
+		for (int e = 1; e < TENS.length; e++)
+			TENS[e] = TENS[e - 1] * 10;
+	}
+	
+	
+	
+	/*
+	 * return a store of numWorkers rows holding every body in the file
+	 */
+	static BodyStore load(String name, int numWorkers) throws IOException {
+		
+		try (FileChannel channel = FileChannel.open(Paths.get(name),
+		        StandardOpenOption.READ)) {
+			
+			final long length = channel.size();
+			final ByteBuffer start = ByteBuffer.allocate(MAGIC.length);
+			channel.read(start, 0);
+			
+			if (length >= MAGIC.length && Arrays.equals(start.array(), MAGIC))
+				return loadBinary(name, channel, numWorkers);
+			
+			return loadCSV(name, channel, numWorkers);
+		}
+	}
+	
+	
+	
+	/*
+	 * save every body of the store in the binary format
+	 */
+	static void save(String name, BodyStore s) throws IOException {
+		
+		final int n = s.size;
+		
+		try (FileChannel channel = FileChannel.open(Paths.get(name),
+		        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+		        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE,
+			        0, 16);
+			header.order(ByteOrder.LITTLE_ENDIAN);
+			header.put(MAGIC);
+			header.putLong(n);
+			
+			final double[][] columns = { s.mass, s.radius, s.px, s.py, s.vx,
+			        s.vy };
+			for (int c = 0; c < COLUMNS; c++)
+				column(channel, FileChannel.MapMode.READ_WRITE, c, n)
+				        .put(columns[c], 0, n);
+		}
+	}
+	
+	
+	
+	/*
+	 * column c of n bodies, mapped
+	 */
+	private static DoubleBuffer column(FileChannel channel,
+	        FileChannel.MapMode mode, int c, long n) throws IOException {
+		
+		return channel.map(mode, 16 + 8L * c * n, 8L * n)
+		        .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+	}
+	
+	
+	
+	private static BodyStore loadBinary(String name, FileChannel channel,
+	        int numWorkers) throws IOException {
+		
+		final ByteBuffer header = ByteBuffer.allocate(16)
+		        .order(ByteOrder.LITTLE_ENDIAN);
+		channel.read(header, 0);
+		final long n = header.getLong(MAGIC.length);
+		
+		if (n < 1 || n > Integer.MAX_VALUE - 8
+		        || channel.size() < 16 + 8L * COLUMNS * n)
+			throw new IOException(name + ": " + n + " bodies do not fit in "
+			        + channel.size() + " bytes");
+		
+		final BodyStore s = new BodyStore((int) n, numWorkers);
+		final double[][] columns = { s.mass, s.radius, s.px, s.py, s.vx,
+		        s.vy };
+		for (int c = 0; c < COLUMNS; c++)
+			column(channel, FileChannel.MapMode.READ_ONLY, c, n)
+			        .get(columns[c], 0, (int) n);
+		
+		for (int i = 0; i < n; i++) {
+			final String fault = fault(columns, i);
+			if (fault != null)
+				throw new IOException(name + ": body " + (i + 1) + ": " + fault);
+		}
+		
+		return finish(s, (int) n);
+	}
+	
+	
+	
+	private static BodyStore loadCSV(final String name, FileChannel channel,
+	        int numWorkers) throws IOException {
+		
+		final long length = channel.size();
+		if (length > Integer.MAX_VALUE)
+			throw new IOException(name + ": CSV over 2 GB; use the binary "
+			        + "format");
+		
+		final MappedByteBuffer text = channel.map(FileChannel.MapMode.READ_ONLY,
+		        0, length);
+		
+		// chunk boundaries, each just past a line end
+		final int chunks = (int) Math.max(1, Math.min(
+		        Runtime.getRuntime().availableProcessors(), length >> 16));
+		final int[] from = new int[chunks + 1];
+		from[chunks] = (int) length;
+		for (int k = 1; k < chunks; k++) {
+			int at = (int) (length * k / chunks);
+			while (at < length && text.get(at - 1) != '\n')
+				at++;
+			from[k] = Math.max(at, from[k - 1]);
+		}
+		
+		final int[] count = new int[chunks + 1];
+		final IOException[] failure = new IOException[chunks];
+		
+		// count, then parse into place from each chunk's first slot
+		inParallel(chunks, new Chunk() {
+			
+			@Override
+			public void run(int k) throws IOException {
+				
+				count[k + 1] = parse(name, text, from[k], from[k + 1], null, 0,
+				        k == 0);
+			}
+		}, failure);
+		
+		for (int k = 0; k < chunks; k++)
+			count[k + 1] += count[k];
+		if (count[chunks] < 1)
+			throw new IOException(name + ": no bodies");
+		
+		final BodyStore s = new BodyStore(count[chunks], numWorkers);
+		final double[][] columns = { s.mass, s.radius, s.px, s.py, s.vx,
+		        s.vy };
+		
+		inParallel(chunks, new Chunk() {
+			
+			@Override
+			public void run(int k) throws IOException {
+				
+				parse(name, text, from[k], from[k + 1], columns, count[k],
+				        k == 0);
+			}
+		}, failure);
+		
+		return finish(s, count[chunks]);
+	}
+	
+	
+	
+	/*
+	 * one chunk's work
+	 */
+	private interface Chunk {
+		
+		void run(int k) throws IOException;
+	}
+	
+	
+	
+	/*
+	 * run every chunk on a thread of its own, and throw the first failure
+	 */
+	private static void inParallel(int chunks, final Chunk chunk,
+	        final IOException[] failure) throws IOException {
+		
+		Thread[] threads = new Thread[chunks];
+		for (int k = 0; k < chunks; k++) {
+			final int id = k;
+			threads[k] = new Thread() {
+				
+				@Override
+				public void run() {
+					
+					try {
+						chunk.run(id);
+					}
+					catch (IOException e) {
+						failure[id] = e;
+					}
+				}
+			};
+			threads[k].start();
+		}
+		
+		try {
+			for (Thread t : threads)
+				t.join();
+		}
+		catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+		
+		for (IOException e : failure)
+			if (e != null)
+				throw e;
+	}
+	
+	
+	
+	/*
+	 * parse the bodies in bytes [from, to) into the columns from slot
+	 * first, or only count them when columns is null. return the count.
+	 * the file's header, if any, is in the chunk with the file's start
+	 */
+	private static int parse(String name, ByteBuffer text, int from, int to,
+	        double[][] columns, int first, boolean start) throws IOException {
+		
+		final double[] value = new double[1];
+		int bodies = 0;
+		int at = from;
+		
+		while (at < to) {
+			// a line, without its end
+			int end = at;
+			while (end < to && text.get(end) != '\n')
+				end++;
+			int last = end;
+			if (last > at && text.get(last - 1) == '\r')
+				last--;
+			
+			int p = at;
+			while (p < last && (text.get(p) == ' ' || text.get(p) == '\t'))
+				p++;
+			
+			boolean skip = p == last || text.get(p) == '#';
+			
+			// the first line with anything on it may be a header
+			if (start && !skip) {
+				start = false;
+				skip = number(text, p, last, value) < 0
+				        && !nonFinite(text, p, last);
+			}
+			
+			if (!skip) {
+				if (columns != null) {
+					for (int c = 0; c < COLUMNS; c++) {
+						p = number(text, p, last, value);
+						if (p < 0 || (c + 1 < COLUMNS ? p >= last
+						        || text.get(p) != ',' : p != last))
+							throw new IOException(name + ": line "
+							        + line(text, at) + ": expected " + COLUMNS
+							        + " numbers");
+						columns[c][first + bodies] = value[0];
+						p++;
+					}
+					final String fault = fault(columns, first + bodies);
+					if (fault != null)
+						throw new IOException(name + ": line " + line(text, at)
+						        + ": " + fault);
+				}
+				bodies++;
+			}
+			
+			at = end + 1;
+		}
+		
+		return bodies;
+	}
+	
+	
+	
+	/*
+	 * parse a number at p, before last, into value[0], and return where it
+	 * ends, past any blanks, or -1. plain decimals of up to 15 digits and
+	 * small exponents are figured exactly here; anything else goes through
+	 * Double.parseDouble
+	 */
+	private static int number(ByteBuffer text, int p, int last, double[] value) {
+		
+		while (p < last && text.get(p) == ' ')
+			p++;
+		final int begin = p;
+		
+		boolean negative = false;
+		if (p < last && (text.get(p) == '-' || text.get(p) == '+'))
+			negative = text.get(p++) == '-';
+		
+		long mantissa = 0;
+		int digits = 0; // significant, past leading zeros
+		int scale = 0; // digits after the point
+		boolean any = false;
+		boolean point = false;
+		for (; p < last; p++) {
+			final byte b = text.get(p);
+			if (b >= '0' && b <= '9') {
+				any = true;
+				if (mantissa != 0 || b != '0')
+					digits++;
+				if (digits <= 15)
+					mantissa = mantissa * 10 + (b - '0');
+				if (point)
+					scale++;
+			}
+			else if (b == '.' && !point)
+				point = true;
+			else
+				break;
+		}
+		
+		int exponent = 0;
+		boolean slow = digits > 15;
+		if (p < last && (text.get(p) == 'e' || text.get(p) == 'E')) {
+			int q = p + 1;
+			boolean down = false;
+			if (q < last && (text.get(q) == '-' || text.get(q) == '+'))
+				down = text.get(q++) == '-';
+			final int expBegin = q;
+			while (q < last && text.get(q) >= '0' && text.get(q) <= '9'
+			        && q - expBegin < 4)
+				exponent = exponent * 10 + (text.get(q++) - '0');
+			if (q == expBegin)
+				return -1;
+			exponent = down ? -exponent : exponent;
+			p = q;
+		}
+		
+		int end = p;
+		while (end < last && text.get(end) == ' ')
+			end++;
+		if (end < last && text.get(end) != ',')
+			slow = true; // NaN, Infinity, hex and the like
+		
+		final int power = exponent - scale;
+		if (!slow && any && Math.abs(power) < TENS.length) {
+			final double m = negative ? -(double) mantissa : mantissa;
+			value[0] = power >= 0 ? m * TENS[power] : m / TENS[-power];
+			return end;
+		}
+		
+		// the whole field, to the comma
+		int stop = begin;
+		while (stop < last && text.get(stop) != ',')
+			stop++;
+		byte[] field = new byte[stop - begin];
+		for (int i = 0; i < field.length; i++)
+			field[i] = text.get(begin + i);
+		try {
+			value[0] = Double.parseDouble(new String(field,
+			        StandardCharsets.US_ASCII).trim());
+		}
+		catch (NumberFormatException e) {
+			return -1;
+		}
+		
+		return stop;
+	}
+	
+	
+	
+	/*
+	 * true when the field at p spells infinity or NaN in a way Java does
+	 * not parse, such as "inf": a bad body, never a header
+	 */
+	private static boolean nonFinite(ByteBuffer text, int p, int last) {
+		
+		final StringBuilder field = new StringBuilder();
+		for (; p < last && text.get(p) != ','; p++)
+			field.append((char) text.get(p));
+		
+		final String word = field.toString().trim().toLowerCase(Locale.ROOT)
+		        .replaceFirst("^[+-]", "");
+		
+		return word.equals("inf") || word.equals("infinity")
+		        || word.equals("nan");
+	}
+	
+	
+	
+	/*
+	 * return the line, from 1, of the byte at. only for reporting, so it
+	 * counts from the file's start
+	 */
+	private static int line(ByteBuffer text, int at) {
+		
+		int line = 1;
+		for (int b = 0; b < at; b++)
+			if (text.get(b) == '\n')
+				line++;
+		
+		return line;
+	}
+	
+	
+	
+	/*
+	 * return why body i of the columns cannot be simulated, or null. moving
+	 * a body divides by its mass, so a bad one spoils the whole field
+	 */
+	private static String fault(double[][] columns, int i) {
+		
+		for (int c = 0; c < COLUMNS; c++)
+			if (!Double.isFinite(columns[c][i]))
+				return NAMES[c] + " is " + columns[c][i];
+		
+		if (columns[0][i] <= 0)
+			return "mass must be positive, not " + columns[0][i];
+		if (columns[1][i] <= 0)
+			return "radius must be positive, not " + columns[1][i];
+		
+		return null;
+	}
+	
+	
+	
+	/*
+	 * set the size and nudge zero velocities, as BodyStore.add does
+	 */
+	private static BodyStore finish(BodyStore s, int n) {
+		
+		for (int i = 0; i < n; i++) {
+			s.vx[i] = BodyStore.nudge(s.vx[i]);
+			s.vy[i] = BodyStore.nudge(s.vy[i]);
+		}
+		s.size = n;
+		
+		return s;
+	}
+}
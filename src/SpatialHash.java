@@ -0,0 +1,131 @@
+import java.util.Arrays;
+
+/*
+ * @author Eric M Evans
+ *
+ * uniform spatial hash over the predicted next positions of the bodies,
+ * used as the collision broad phase. cells are as wide as the largest
+ * possible contact distance, so a body can only touch bodies in its own
+ * cell or the eight around it. buckets are filled by counting sort and
+ * every array is reused between steps.
+ */
+public class SpatialHash {
+	
+	// predicted next locations, taken before any velocity changes
+	double[]		nextX		= new double[0];
+	double[]		nextY		= new double[0];
+	
+	private long[]	cellX		= new long[0];
+	private long[]	cellY		= new long[0];
+	private int[]	bucketOf	= new int[0];
+	private int[]	sorted		= new int[0];
+	private int[]	start		= new int[1];
+	private int		mask;
+	private double	cellSize;
+	
+	
+	
+	/*
+	 * predict every body's next location and hash it into a cell
+	 */
+	public void build(BodyStore s, double fps) {
+		
+		final int n = s.size;
+		
+		if (nextX.length < n) {
+			final int cap = s.px.length;
+			nextX = new double[cap];
+			nextY = new double[cap];
+			cellX = new long[cap];
+			cellY = new long[cap];
+			bucketOf = new int[cap];
+			sorted = new int[cap];
+		}
+		
+		int buckets = Integer.highestOneBit(Math.max(n, 1)) * 2;
+		if (start.length < buckets + 1)
+			start = new int[buckets + 1];
+		mask = buckets - 1;
+		
+		double maxRadius = 1;
+		for (int i = 0; i < n; i++) {
+			nextX[i] = s.px[i] + s.vx[i] * 1.5 / fps;
+			nextY[i] = s.py[i] + s.vy[i] * 1.5 / fps;
+			maxRadius = Math.max(maxRadius, s.radius[i]);
+		}
+		cellSize = 2 * maxRadius;
+		
+		Arrays.fill(start, 0, buckets + 1, 0);
+		for (int i = 0; i < n; i++) {
+			cellX[i] = (long) Math.floor(nextX[i] / cellSize);
+			cellY[i] = (long) Math.floor(nextY[i] / cellSize);
+			bucketOf[i] = bucket(cellX[i], cellY[i]);
+			start[bucketOf[i] + 1]++;
+		}
+		
+		for (int b = 0; b < buckets; b++)
+			start[b + 1] += start[b];
+		
+		// fill in index order, so each bucket lists its bodies ascending
+		for (int i = 0; i < n; i++)
+			sorted[start[bucketOf[i]]++] = i;
+		
+		// filling advanced every start one bucket; shift back
+		for (int b = buckets; b > 0; b--)
+			start[b] = start[b - 1];
+		start[0] = 0;
+	}
+	
+	
+	
+	/*
+	 * return bucket of the given cell
+	 */
+	private int bucket(long x, long y) {
+		
+		long h = x * 0x9E3779B97F4A7C15L + y * 0xC2B2AE3D27D4EB4FL;
+		h ^= (h >>> 29);
+		
+		return (int) h & mask;
+	}
+	
+	
+	
+	/*
+	 * write every body k > i from the cells around body i into out, in
+	 * ascending order. returns the number written
+	 */
+	public int candidates(int i, int[] out) {
+		
+		int count = 0;
+		
+		for (int j = 0; j < 9; j++) {
+			final int b = neighbour(i, j);
+			
+			// neighbouring cells may share a bucket; visit it once
+			boolean visited = false;
+			for (int e = 0; e < j && !visited; e++)
+				visited = neighbour(i, e) == b;
+			if (visited)
+				continue;
+			
+			for (int at = start[b]; at < start[b + 1]; at++)
+				if (sorted[at] > i)
+					out[count++] = sorted[at];
+		}
+		
+		Arrays.sort(out, 0, count);
+		
+		return count;
+	}
+	
+	
+	
+	/*
+	 * return bucket of the j-th of the nine cells around body i
+	 */
+	private int neighbour(int i, int j) {
+		
+		return bucket(cellX[i] + j % 3 - 1, cellY[i] + j / 3 - 1);
+	}
+}
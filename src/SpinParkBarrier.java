@@ -0,0 +1,72 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * @author Eric M Evans
+ * 
+ * adaptive spin-then-park barrier. a waiter spins on the phase for a
+ * while, then registers itself and parks; the last to arrive advances the
+ * phase and unparks whoever registered. each worker keeps its own spin
+ * limit, doubled when spinning was enough and halved when it had to park,
+ * so short phases stay on the fast path and long ones give up the core.
+ */
+public class SpinParkBarrier implements Barrier {
+	
+	private static final int					MIN_SPINS	= 16;
+	private static final int					MAX_SPINS	= 1 << 14;
+	
+	private final int							parties;
+	private final AtomicInteger					count;
+	private volatile int						phase		= 0;
+	private final AtomicReferenceArray<Thread>	parked;
+	private final int[]							spins;
+	
+	
+	
+	public SpinParkBarrier(int parties) {
+		
+		this.parties = parties;
+		this.count = new AtomicInteger(parties);
+		this.parked = new AtomicReferenceArray<>(parties);
+		this.spins = new int[parties];
+		Arrays.fill(spins, MIN_SPINS * 16);
+	}
+	
+	
+	
+	@Override
+	public void await(int id) {
+		
+		final int p = phase;
+		
+		if (count.decrementAndGet() == 0) {
+			count.set(parties);
+			phase = p + 1;
+			for (int w = 0; w < parties; w++) {
+				final Thread t = parked.get(w);
+				if (t != null)
+					LockSupport.unpark(t);
+			}
+			return;
+		}
+		
+		for (int i = 0; i < spins[id]; i++) {
+			if (phase != p) {
+				spins[id] = Math.min(MAX_SPINS, 2 * spins[id]);
+				return;
+			}
+			Thread.onSpinWait();
+		}
+		
+		// registering before the last check pairs with the releaser
+		// advancing the phase before reading the registrations
+		parked.set(id, Thread.currentThread());
+		while (phase == p)
+			LockSupport.park(this);
+		parked.set(id, null);
+		
+		spins[id] = Math.max(MIN_SPINS, spins[id] / 2);
+	}
+}
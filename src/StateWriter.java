@@ -0,0 +1,157 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/*
+ * @author Eric M Evans
+ *
+ * writes bodies as text, one line each, byte for byte as
+ * String.format("%2d: Position (%+09.3f,%+09.3f), Velocity (%+09.3f,%+09.3f)")
+ * would, but digit by digit into a byte buffer that is reused from line
+ * to line and call to call, and written through a FileChannel.
+ *
+ * Formatter rounds half up on the shortest decimal that reads back as
+ * the double, not on its exact binary value. the two only disagree when
+ * a value lies within a rounding error of half a thousandth, and there,
+ * as for infinities, NaN and values past a long, String.format itself is
+ * used.
+ */
+public class StateWriter {
+	
+	private static final byte[]	POSITION	= ": Position ("
+	        .getBytes(StandardCharsets.US_ASCII);
+	private static final byte[]	VELOCITY	= "), Velocity ("
+	        .getBytes(StandardCharsets.US_ASCII);
+	private static final byte[]	END			= ")\n"
+	        .getBytes(StandardCharsets.US_ASCII);
+	
+	// room for a line of numbers that take the fast path
+	private static final int	LINE		= 160;
+	
+	private final ByteBuffer	buffer		= ByteBuffer.allocate(1 << 16);
+	private final byte[]		bytes		= buffer.array();
+	private final byte[]		digits		= new byte[20];
+	private int					at;
+	
+	
+	
+	/*
+	 * write every body, in list order, with values from its slot of the
+	 * store
+	 */
+	void write(String name, ArrayList<Body> bodies, BodyStore s)
+	        throws IOException {
+		
+		try (FileChannel channel = FileChannel.open(Paths.get(name),
+		        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+		        StandardOpenOption.WRITE)) {
+			
+			at = 0;
+			for (int i = 0; i < bodies.size(); i++) {
+				if (at + LINE > bytes.length)
+					flush(channel);
+				
+				putID(bodies.get(i).getID());
+				put(POSITION);
+				putFixed(s.px[i], channel);
+				bytes[at++] = ',';
+				putFixed(s.py[i], channel);
+				put(VELOCITY);
+				putFixed(s.vx[i], channel);
+				bytes[at++] = ',';
+				putFixed(s.vy[i], channel);
+				put(END);
+			}
+			flush(channel);
+		}
+	}
+	
+	
+	
+	private void flush(FileChannel channel) throws IOException {
+		
+		buffer.clear().limit(at);
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		at = 0;
+	}
+	
+	
+	
+	private void put(byte[] text) {
+		
+		System.arraycopy(text, 0, bytes, at, text.length);
+		at += text.length;
+	}
+	
+	
+	
+	/*
+	 * as %2d
+	 */
+	private void putID(int id) {
+		
+		if (id < 0) {
+			put(String.format("%2d", id).getBytes(StandardCharsets.US_ASCII));
+			return;
+		}
+		
+		if (id < 10)
+			bytes[at++] = ' ';
+		putDigits(id, 1);
+	}
+	
+	
+	
+	/*
+	 * as %+09.3f
+	 */
+	private void putFixed(double v, FileChannel channel) throws IOException {
+		
+		final double scaled = Math.abs(v) * 1000;
+		final long units = (long) scaled;
+		final double frac = scaled - units;
+		
+		// too near a tie to round on the binary value, or no long holds it
+		if (!(scaled < 1e15)
+		        || Math.abs(frac - 0.5) <= 1e-7 + 4 * Math.ulp(scaled)) {
+			final byte[] text = String.format("%+09.3f", v)
+			        .getBytes(StandardCharsets.US_ASCII);
+			if (at + text.length + LINE > bytes.length)
+				flush(channel);
+			put(text);
+			return;
+		}
+		
+		final long rounded = frac > 0.5 ? units + 1 : units;
+		
+		// the sign of -0.0, and of anything rounding to it, is kept
+		bytes[at++] = (byte) (Double.doubleToRawLongBits(v) < 0 ? '-' : '+');
+		putDigits(rounded / 1000, 4);
+		bytes[at++] = '.';
+		putDigits(rounded % 1000, 3);
+	}
+	
+	
+	
+	/*
+	 * decimal digits of a non-negative value, zero padded to width
+	 */
+	private void putDigits(long value, int width) {
+		
+		int n = 0;
+		do {
+			digits[n++] = (byte) ('0' + value % 10);
+			value /= 10;
+		} while (value != 0);
+		
+		for (int pad = n; pad < width; pad++)
+			bytes[at++] = '0';
+		while (n > 0)
+			bytes[at++] = digits[--n];
+	}
+}
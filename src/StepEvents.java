@@ -0,0 +1,180 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ * @author Eric M Evans
+ *
+ * flight recorder events for one worker: a step, and each stretch of a
+ * phase within it, barrier waits left out. every type is off unless a
+ * recording turns it on, e.g. with the settings in freebodies.jfc:
+ *
+ * java -XX:StartFlightRecording:settings=default,settings=freebodies.jfc,
+ * filename=run.jfr FreeBodies ...
+ *
+ * each event is made once and reused, so recording allocates nothing;
+ * with recording off a phase change costs one check of a static flag.
+ */
+public class StepEvents {
+	
+	/*
+	 * fields every event carries. collisions are those found so far in the
+	 * step, so none for gravity
+	 */
+	@Category("FreeBodies")
+	@StackTrace(false)
+	@Enabled(false)
+	static abstract class Base extends Event {
+		
+		@Label("Worker")
+		int	worker;
+		
+		@Label("Bodies")
+		int	bodies;
+		
+		@Label("Collisions")
+		int	collisions;
+	}
+	
+	
+	
+	@Name("FreeBodies.Step")
+	@Label("Step")
+	@Description("one simulation step of one worker")
+	static class Step extends Base {
+	}
+	
+	
+	
+	@Name("FreeBodies.Gravity")
+	@Label("Gravity")
+	@Description("gravitational forces, and worker 0 building trees")
+	static class Gravity extends Base {
+	}
+	
+	
+	
+	@Name("FreeBodies.Collisions")
+	@Label("Collisions")
+	@Description("collision broad phase, detection and resolution")
+	static class Collisions extends Base {
+	}
+	
+	
+	
+	@Name("FreeBodies.Move")
+	@Label("Move")
+	@Description("force reduction and moving bodies")
+	static class Move extends Base {
+	}
+	
+	
+	
+	@Name("FreeBodies.Notify")
+	@Label("Notify")
+	@Description("worker 0 between steps: GUI frame, records, checkpoints")
+	static class Notify extends Base {
+	}
+	
+	
+	
+	private final int		worker;
+	private final Step		step	= new Step();
+	private final Base[]	phases	= new Base[StepMetrics.PHASES.length];
+	private int				open;	// bit per event begun and not yet ended
+	
+	private static final int	STEP	= 1 << StepMetrics.PHASES.length;
+	
+	
+	
+	public StepEvents(int worker) {
+		
+		this.worker = worker;
+		
+		// none for barrier waits, which show as gaps
+		phases[StepMetrics.GRAVITY] = new Gravity();
+		phases[StepMetrics.COLLISIONS] = new Collisions();
+		phases[StepMetrics.MOVE] = new Move();
+		phases[StepMetrics.OBSERVERS] = new Notify();
+	}
+	
+	
+	
+	/*
+	 * a step starts, in the given phase
+	 */
+	void beginStep(int phase) {
+		
+		if (step.isEnabled()) {
+			step.begin();
+			open |= STEP;
+		}
+		begin(phase);
+	}
+	
+	
+	
+	/*
+	 * the worker leaves one phase for another
+	 */
+	void enter(int from, int to, int bodies, int collisions) {
+		
+		end(from, bodies, collisions);
+		begin(to);
+	}
+	
+	
+	
+	/*
+	 * the step ends, in the given phase
+	 */
+	void endStep(int phase, int bodies, int collisions) {
+		
+		end(phase, bodies, collisions);
+		if ((open & STEP) != 0) {
+			open &= ~STEP;
+			commit(step, bodies, collisions);
+		}
+	}
+	
+	
+	
+	private void begin(int phase) {
+		
+		final Base event = phases[phase];
+		
+		if (event != null && event.isEnabled()) {
+			event.begin();
+			open |= 1 << phase;
+		}
+	}
+	
+	
+	
+	private void end(int phase, int bodies, int collisions) {
+		
+		// an event turned on mid-phase waits for the next phase to begin
+		if ((open & 1 << phase) == 0)
+			return;
+		
+		open &= ~(1 << phase);
+		commit(phases[phase], bodies, collisions);
+	}
+	
+	
+	
+	private void commit(Base event, int bodies, int collisions) {
+		
+		event.end();
+		if (event.shouldCommit()) {
+			event.worker = worker;
+			event.bodies = bodies;
+			event.collisions = collisions;
+			event.commit();
+		}
+	}
+}
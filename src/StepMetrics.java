@@ -0,0 +1,316 @@
+import java.util.Locale;
+
+/*
+ * @author Eric M Evans
+ *
+ * where each worker's step time goes. every nanosecond of a step is
+ * charged to exactly one phase, barrier waits included, and at the end of
+ * the step each phase's share goes into that worker's totals and latency
+ * histogram. a worker only ever writes its own arrays, so recording takes
+ * no lock and no allocation; readers see values that may be a step
+ * behind.
+ *
+ * histograms have four buckets per power of two, so a percentile is good
+ * to within 25%. the longest time of each phase is kept exactly.
+ */
+public class StepMetrics implements StepMetricsMBean {
+	
+	// phases a step is split into
+	static final int				GRAVITY		= 0;
+	static final int				COLLISIONS	= 1;
+	static final int				MOVE		= 2;
+	static final int				OBSERVERS	= 3;
+	static final int				BARRIER		= 4;
+	
+	static final String[]			PHASES		= { "gravity", "collisions",
+	        "move", "observers", "barrier" };
+	
+	private static final int		BUCKETS		= 256;
+	
+	// per worker row: phase totals, then these, then phase maxima, padded
+	private static final int		STEPS		= PHASES.length;
+	private static final int		WAITS		= STEPS + 1;
+	private static final int		PAIRS		= STEPS + 2;
+	private static final int		MAX			= STEPS + 3;
+	private static final int		ROW			= MAX + PHASES.length + 8;
+	
+	private final long[][]			rows;
+	private final long[][]			histograms;	// [worker][phase * BUCKETS + b]
+	private volatile long			firstStep;
+	private volatile long			lastStep;
+	
+	
+	
+	public StepMetrics(int numWorkers) {
+		
+		rows = new long[numWorkers][ROW];
+		histograms = new long[numWorkers][PHASES.length * BUCKETS];
+	}
+	
+	
+	
+	/*
+	 * return histogram bucket of a latency
+	 */
+	private static int bucket(long nanos) {
+		
+		if (nanos < 4)
+			return (int) Math.max(0, nanos);
+		
+		final int e = 63 - Long.numberOfLeadingZeros(nanos);
+		
+		return (e - 1) * 4 + (int) ((nanos >>> (e - 2)) & 3);
+	}
+	
+	
+	
+	/*
+	 * return smallest latency in bucket b
+	 */
+	private static long lowest(int b) {
+		
+		if (b < 4)
+			return b;
+		
+		return (4L + b % 4) << (b / 4 - 1);
+	}
+	
+	
+	
+	/*
+	 * record one finished step of a worker: nanos per phase, zeroed for the
+	 * next step, barrier waits and pair interactions. called by the worker
+	 */
+	void endStep(int worker, long[] nanos, int waits, long pairs) {
+		
+		final long[] row = rows[worker];
+		final long[] histogram = histograms[worker];
+		
+		for (int p = 0; p < PHASES.length; p++) {
+			row[p] += nanos[p];
+			histogram[p * BUCKETS + bucket(nanos[p])]++;
+			row[MAX + p] = Math.max(row[MAX + p], nanos[p]);
+			nanos[p] = 0;
+		}
+		row[STEPS]++;
+		row[WAITS] += waits;
+		row[PAIRS] += pairs;
+		
+		if (worker == 0) {
+			final long now = System.nanoTime();
+			// the first step began its phases before it ended
+			if (firstStep == 0)
+				firstStep = now - row[GRAVITY] - row[COLLISIONS] - row[MOVE]
+				        - row[OBSERVERS] - row[BARRIER];
+			lastStep = now;
+		}
+	}
+	
+	
+	
+	/*
+	 * return total nanoseconds of a phase, over every worker
+	 */
+	long totalNanos(int phase) {
+		
+		long total = 0;
+		for (long[] row : rows)
+			total += row[phase];
+		
+		return total;
+	}
+	
+	
+	
+	/*
+	 * return the longest time of a phase in any one step, over every worker
+	 */
+	long maxNanos(int phase) {
+		
+		long max = 0;
+		for (long[] row : rows)
+			max = Math.max(max, row[MAX + phase]);
+		
+		return max;
+	}
+	
+	
+	
+	/*
+	 * return the latency, in nanoseconds, below which fraction q of the
+	 * per-step times of a phase fall, over every worker. the bucket's lower
+	 * bound, but exact for q of 1, the longest
+	 */
+	long percentileNanos(int phase, double q) {
+		
+		long count = 0;
+		for (long[] histogram : histograms)
+			for (int b = 0; b < BUCKETS; b++)
+				count += histogram[phase * BUCKETS + b];
+		if (count == 0)
+			return 0;
+		if (q >= 1)
+			return maxNanos(phase);
+		
+		final long rank = Math.max(1, (long) Math.ceil(q * count));
+		long seen = 0;
+		for (int b = 0; b < BUCKETS; b++) {
+			for (long[] histogram : histograms)
+				seen += histogram[phase * BUCKETS + b];
+			if (seen >= rank)
+				return lowest(b);
+		}
+		
+		return lowest(BUCKETS - 1);
+	}
+	
+	
+	
+	@Override
+	public long getSteps() {
+		
+		return rows[0][STEPS];
+	}
+	
+	
+	
+	@Override
+	public double getStepsPerSecond() {
+		
+		final long elapsed = lastStep - firstStep;
+		
+		return elapsed <= 0 ? 0 : getSteps() / (elapsed / 1e9);
+	}
+	
+	
+	
+	@Override
+	public long getPairInteractions() {
+		
+		long total = 0;
+		for (long[] row : rows)
+			total += row[PAIRS];
+		
+		return total;
+	}
+	
+	
+	
+	@Override
+	public double getPairInteractionsPerSecond() {
+		
+		final long elapsed = lastStep - firstStep;
+		
+		return elapsed <= 0 ? 0 : getPairInteractions() / (elapsed / 1e9);
+	}
+	
+	
+	
+	@Override
+	public long getBarrierWaits() {
+		
+		long total = 0;
+		for (long[] row : rows)
+			total += row[WAITS];
+		
+		return total;
+	}
+	
+	
+	
+	@Override
+	public double getGravityMillis() {
+		
+		return totalNanos(GRAVITY) / 1e6;
+	}
+	
+	
+	
+	@Override
+	public double getCollisionsMillis() {
+		
+		return totalNanos(COLLISIONS) / 1e6;
+	}
+	
+	
+	
+	@Override
+	public double getMoveMillis() {
+		
+		return totalNanos(MOVE) / 1e6;
+	}
+	
+	
+	
+	@Override
+	public double getObserversMillis() {
+		
+		return totalNanos(OBSERVERS) / 1e6;
+	}
+	
+	
+	
+	@Override
+	public double getBarrierWaitMillis() {
+		
+		return totalNanos(BARRIER) / 1e6;
+	}
+	
+	
+	
+	@Override
+	public double[] getBarrierWaitMillisPerWorker() {
+		
+		final double[] millis = new double[rows.length];
+		for (int w = 0; w < rows.length; w++)
+			millis[w] = rows[w][BARRIER] / 1e6;
+		
+		return millis;
+	}
+	
+	
+	
+	@Override
+	public double percentileMicros(String phase, double q) {
+		
+		for (int p = 0; p < PHASES.length; p++)
+			if (PHASES[p].equals(phase))
+				return percentileNanos(p, q) / 1e3;
+		
+		throw new IllegalArgumentException("unknown phase: " + phase);
+	}
+	
+	
+	
+	@Override
+	public String getSummary() {
+		
+		StringBuilder text = new StringBuilder();
+		
+		text.append(String.format(Locale.ROOT,
+		        "steps/sec: %.1f, pair interactions/sec: %.4g\n",
+		        getStepsPerSecond(), getPairInteractionsPerSecond()));
+		text.append(String.format(Locale.ROOT,
+		        "%10s %12s %12s %10s %10s %10s\n", "phase", "total ms",
+		        "share", "p50 us", "p99 us", "max us"));
+		
+		long all = 0;
+		for (int p = 0; p < PHASES.length; p++)
+			all += totalNanos(p);
+		
+		for (int p = 0; p < PHASES.length; p++)
+			text.append(String.format(Locale.ROOT,
+			        "%10s %12.1f %11.1f%% %10.1f %10.1f %10.1f\n", PHASES[p],
+			        totalNanos(p) / 1e6,
+			        all == 0 ? 0 : 100.0 * totalNanos(p) / all,
+			        percentileNanos(p, 0.5) / 1e3,
+			        percentileNanos(p, 0.99) / 1e3,
+			        maxNanos(p) / 1e3));
+		
+		text.append("barrier wait per worker (ms):");
+		for (double ms : getBarrierWaitMillisPerWorker())
+			text.append(String.format(Locale.ROOT, " %.0f", ms));
+		
+		return text.toString();
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * @author Eric M Evans
+ *
+ * step metrics as published over JMX, under FreeBodies:type=StepMetrics.
+ * times are summed over every worker.
+ */
+public interface StepMetricsMBean {
+	
+	/*
+	 * steps worker 0 has finished
+	 */
+	long getSteps();
+	
+	
+	
+	/*
+	 * steps per second since the first step
+	 */
+	double getStepsPerSecond();
+	
+	
+	
+	/*
+	 * gravity interactions figured: body pairs for direct sums, body-body
+	 * and body-cell pairs for Barnes-Hut
+	 */
+	long getPairInteractions();
+	
+	
+	
+	double getPairInteractionsPerSecond();
+	
+	
+	
+	/*
+	 * number of barrier calls
+	 */
+	long getBarrierWaits();
+	
+	
+	
+	double getGravityMillis();
+	
+	
+	
+	double getCollisionsMillis();
+	
+	
+	
+	double getMoveMillis();
+	
+	
+	
+	/*
+	 * time worker 0 spent between steps: publishing a frame for the GUI,
+	 * recording and checkpointing
+	 */
+	double getObserversMillis();
+	
+	
+	
+	double getBarrierWaitMillis();
+	
+	
+	
+	double[] getBarrierWaitMillisPerWorker();
+	
+	
+	
+	/*
+	 * the q-th quantile, 0 to 1, of one phase's time per step, in
+	 * microseconds. 1 gives the longest, exactly
+	 */
+	double percentileMicros(String phase, double q);
+	
+	
+	
+	/*
+	 * table of every phase, as printed at the end of a run
+	 */
+	String getSummary();
+}
@@ -0,0 +1,59 @@
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/*
+ * @author Eric M Evans
+ * 
+ * tournament barrier. in round r worker id plays worker id + 2^r; the one
+ * with the lower ID wins and waits for the loser to arrive, the loser
+ * waits to be woken. worker 0 wins the final, then each winner wakes the
+ * workers it beat, last round first. flags hold the episode number, so
+ * they never need resetting.
+ */
+public class TournamentBarrier implements Barrier {
+	
+	private final int					parties;
+	private final AtomicIntegerArray	arrived;
+	private final AtomicIntegerArray	released;
+	private final int[]					episode;
+	
+	
+	
+	public TournamentBarrier(int parties) {
+		
+		this.parties = parties;
+		this.arrived = new AtomicIntegerArray(parties);
+		this.released = new AtomicIntegerArray(parties);
+		this.episode = new int[parties];
+	}
+	
+	
+	
+	@Override
+	public void await(int id) {
+		
+		final int e = ++episode[id];
+		
+		// play rounds until this worker loses, or wins the final
+		int r;
+		for (r = 0; (1 << r) < parties; r++) {
+			if ((id & (1 << r)) != 0) {
+				arrived.set(id, e);
+				while (released.get(id) != e)
+					Thread.yield();
+				break;
+			}
+			
+			final int loser = id + (1 << r);
+			if (loser < parties)
+				while (arrived.get(loser) != e)
+					Thread.yield();
+		}
+		
+		// wake the workers beaten in earlier rounds
+		for (int q = r - 1; q >= 0; q--) {
+			final int loser = id + (1 << q);
+			if (loser < parties)
+				released.set(loser, e);
+		}
+	}
+}
@@ -0,0 +1,192 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/*
+ * @author Eric M Evans
+ *
+ * a timeline of every worker, for --trace: each step, each stretch of a
+ * phase, and each barrier wait from arrival to release. a worker appends
+ * to its own buffer only, so recording takes no lock; the buffers are
+ * written out once the workers have finished, in the Chrome trace-event
+ * format that chrome://tracing and Perfetto open. one thread per worker,
+ * one slice per phase, time in microseconds from the start of the run.
+ *
+ * the buffers are sized up front, for the steps of the run, so recording
+ * never allocates or copies mid-step; at most MOST_RECORDS are kept over
+ * all workers. a worker without room for another whole step stops
+ * recording there, and write says so.
+ */
+public class Trace {
+	
+	// slice names, by StepMetrics phase, then the step itself
+	private static final int		STEP	= StepMetrics.PHASES.length;
+	private static final String[]	NAMES	= { "gravity", "collisions",
+	        "move", "notify", "barrier", "step" };
+	
+	// records a step takes, about: a phased step ~30, fused ~18, a
+	// Barnes-Hut step ~34. a step is only begun with room for RESERVE more
+	private static final int		RECORDS_PER_STEP	= 40;
+	private static final int		RESERVE				= 2 * RECORDS_PER_STEP;
+	
+	// over every worker, at 9 bytes a record
+	private static final long		MOST_RECORDS		= 1L << 24;
+	
+	private final long				start	= System.nanoTime();
+	private final Buffer[]			buffers;
+	
+	
+	
+	/*
+	 * one worker's slices, in order: time and name, with the top bit of
+	 * the name set for a begin
+	 */
+	static class Buffer {
+		
+		private final long[]	times;
+		private final byte[]	kinds;
+		private int				count;
+		private int				steps;
+		private boolean			full;
+		
+		
+		
+		Buffer(int capacity) {
+			times = new long[capacity];
+			kinds = new byte[capacity];
+		}
+		
+		
+		
+		/*
+		 * a step starts, in the given phase. nothing more is recorded once
+		 * there is no room for a whole step
+		 */
+		void beginStep(long nanos, int phase) {
+			
+			if (times.length - count < RESERVE)
+				full = true;
+			if (full)
+				return;
+			
+			steps++;
+			add(nanos, STEP, true);
+			add(nanos, phase, true);
+		}
+		
+		
+		
+		/*
+		 * the worker leaves one phase for another
+		 */
+		void enter(long nanos, int from, int to) {
+			
+			if (full)
+				return;
+			
+			add(nanos, from, false);
+			add(nanos, to, true);
+		}
+		
+		
+		
+		/*
+		 * the step ends, in the given phase
+		 */
+		void endStep(long nanos, int phase) {
+			
+			if (full)
+				return;
+			
+			add(nanos, phase, false);
+			add(nanos, STEP, false);
+		}
+		
+		
+		
+		private void add(long nanos, int name, boolean begin) {
+			
+			// a step past RESERVE records; its slices stay open
+			if (count == times.length) {
+				full = true;
+				return;
+			}
+			
+			times[count] = nanos;
+			kinds[count] = (byte) (begin ? name | 0x80 : name);
+			count++;
+		}
+	}
+	
+	
+	
+	/*
+	 * a trace of the given number of steps, 0 for endless
+	 */
+	public Trace(int numWorkers, int steps) {
+		
+		final long most = MOST_RECORDS / numWorkers;
+		final int capacity = (int) (steps == 0 ? most
+		        : Math.min(most, (long) steps * RECORDS_PER_STEP + RESERVE));
+		
+		buffers = new Buffer[numWorkers];
+		for (int w = 0; w < numWorkers; w++)
+			buffers[w] = new Buffer(capacity);
+	}
+	
+	
+	
+	/*
+	 * return the buffer only the given worker writes
+	 */
+	Buffer buffer(int worker) {
+		
+		return buffers[worker];
+	}
+	
+	
+	
+	/*
+	 * write every buffer to a trace-event JSON file. call once the workers
+	 * are done
+	 */
+	void write(String name) throws IOException {
+		
+		BufferedWriter bw = new BufferedWriter(new FileWriter(name));
+		StringBuilder line = new StringBuilder();
+		
+		bw.write("{\"displayTimeUnit\": \"ns\", \"traceEvents\": [\n");
+		bw.write("{\"name\": \"process_name\", \"ph\": \"M\", \"pid\": 1, "
+		        + "\"args\": {\"name\": \"FreeBodies\"}}");
+		
+		for (int w = 0; w < buffers.length; w++) {
+			bw.write(",\n{\"name\": \"thread_name\", \"ph\": \"M\", \"pid\": 1, "
+			        + "\"tid\": " + w + ", \"args\": {\"name\": \"worker " + w
+			        + "\"}}");
+			
+			final Buffer b = buffers[w];
+			for (int e = 0; e < b.count; e++) {
+				final long ns = b.times[e] - start;
+				final long frac = ns % 1000;
+				
+				line.setLength(0);
+				line.append(",\n{\"name\": \"").append(NAMES[b.kinds[e] & 0x7f])
+				        .append("\", \"ph\": \"")
+				        .append(b.kinds[e] < 0 ? 'B' : 'E')
+				        .append("\", \"ts\": ").append(ns / 1000).append('.')
+				        .append(frac < 100 ? frac < 10 ? "00" : "0" : "")
+				        .append(frac).append(", \"pid\": 1, \"tid\": ")
+				        .append(w).append('}');
+				bw.append(line);
+			}
+		}
+		
+		bw.write("\n]}\n");
+		bw.close();
+		
+		for (int w = 0; w < buffers.length; w++)
+			if (buffers[w].full)
+				System.out.println("trace of worker " + w + " full, recorded "
+				        + "its first " + buffers[w].steps + " steps only");
+	}
+}
@@ -0,0 +1,242 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * @author Eric M Evans
+ *
+ * records every body's position and velocity every few steps, for
+ * --record. worker 0 copies a frame into a ring of preallocated slots and
+ * goes on; a writer thread drains the ring into a memory-mapped file that
+ * is mapped a region at a time as it grows. the ring has one producer and
+ * one consumer, so it needs no lock, and worker 0 only ever waits when
+ * the writer has fallen a whole ring behind.
+ *
+ * the file, little-endian throughout:
+ *
+ * header, HEADER bytes: magic "FBTRAJ01", header bytes (int), bodies N
+ * (int), step interval (int), field count (int), frames (long, written
+ * at close), frame bytes (int), 0 (int), then per field 24 bytes: name
+ * (8 ASCII bytes, zero padded), type (int, 1 = int64, 2 = float64),
+ * count (int) and offset within a frame (long).
+ *
+ * frames, frame bytes each: step (int64), then N each of px, py, vx, vy
+ * (float64), one field after another.
+ */
+public class TrajectoryRecorder {
+	
+	static final byte[]			MAGIC		= "FBTRAJ01"
+	        .getBytes(StandardCharsets.US_ASCII);
+	private static final String[]	FIELDS		= { "px", "py", "vx", "vy" };
+	private static final int	INT64		= 1;
+	private static final int	FLOAT64		= 2;
+	static final int			HEADER		= 40 + 24 * (1 + FIELDS.length);
+	
+	private static final long	RING_BYTES	= 32L << 20;
+	private static final long	REGION		= 64L << 20;	// mapped at once
+	
+	private final FileChannel	channel;
+	private final int			bodies;
+	private final int			interval;
+	private final int			frameBytes;
+	
+	// ring of frames: step, then fields one after another
+	private final long[]		stepOf;
+	private final double[][]	slots;
+	private volatile long		head;		// frames published by worker 0
+	private volatile long		tail;		// frames written
+	private volatile boolean	closing;
+	private long				stalls;
+	
+	private final Thread		writer;
+	private volatile IOException	failure;
+	
+	
+	
+	/*
+	 * create, or replace, the file and start the writer
+	 */
+	public TrajectoryRecorder(String name, int bodies, int interval)
+	        throws IOException {
+		
+		this.bodies = bodies;
+		this.interval = interval;
+		this.frameBytes = 8 + 8 * FIELDS.length * bodies;
+		
+		channel = FileChannel.open(Paths.get(name), StandardOpenOption.CREATE,
+		        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+		        StandardOpenOption.WRITE);
+		writeHeader(0);
+		
+		final int ring = (int) Math.max(2, Math.min(64, RING_BYTES / frameBytes));
+		stepOf = new long[ring];
+		slots = new double[ring][FIELDS.length * bodies];
+		
+		writer = new Thread("trajectory writer") {
+			
+			@Override
+			public void run() {
+				
+				try {
+					drain();
+				}
+				catch (IOException e) {
+					failure = e;
+				}
+			}
+		};
+		writer.setDaemon(true);
+		writer.start();
+	}
+	
+	
+	
+	/*
+	 * steps between frames
+	 */
+	int interval() {
+		
+		return interval;
+	}
+	
+	
+	
+	/*
+	 * copy the store into the next slot. called by worker 0 only, while
+	 * positions and velocities hold still
+	 */
+	void record(long step, BodyStore s) {
+		
+		final long at = head;
+		if (at - tail == slots.length) {
+			stalls++;
+			while (at - tail == slots.length && failure == null)
+				LockSupport.parkNanos(100000L);
+		}
+		
+		final int i = (int) (at % slots.length);
+		final double[] slot = slots[i];
+		
+		stepOf[i] = step;
+		System.arraycopy(s.px, 0, slot, 0, bodies);
+		System.arraycopy(s.py, 0, slot, bodies, bodies);
+		System.arraycopy(s.vx, 0, slot, 2 * bodies, bodies);
+		System.arraycopy(s.vy, 0, slot, 3 * bodies, bodies);
+		
+		head = at + 1; // publishes the slot
+	}
+	
+	
+	
+	/*
+	 * write frames as they are published, until closed and empty
+	 */
+	private void drain() throws IOException {
+		
+		MappedByteBuffer region = null;
+		long regionEnd = HEADER;
+		
+		while (true) {
+			final long at = tail;
+			
+			if (at == head) {
+				if (closing && at == head)
+					break;
+				LockSupport.parkNanos(1000000L);
+				continue;
+			}
+			
+			// map the next region once this one is full, a whole number of
+			// frames at a time so none straddles two
+			final long offset = HEADER + at * frameBytes;
+			if (offset + frameBytes > regionEnd) {
+				final long size = Math.max(1, REGION / frameBytes) * frameBytes;
+				region = channel.map(FileChannel.MapMode.READ_WRITE, offset,
+				        size);
+				region.order(ByteOrder.LITTLE_ENDIAN);
+				regionEnd = offset + size;
+			}
+			
+			final int i = (int) (at % slots.length);
+			region.putLong(stepOf[i]);
+			region.asDoubleBuffer().put(slots[i]);
+			region.position(region.position() + 8 * slots[i].length);
+			
+			tail = at + 1; // frees the slot
+		}
+	}
+	
+	
+	
+	/*
+	 * write the rest of the frames, trim the file to them and record their
+	 * number in the header. return how often worker 0 waited on the writer
+	 */
+	long close() throws IOException {
+		
+		closing = true;
+		try {
+			writer.join();
+		}
+		catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+		if (failure != null)
+			throw failure;
+		
+		channel.truncate(HEADER + tail * frameBytes);
+		writeHeader(tail);
+		channel.force(true);
+		channel.close();
+		
+		return stalls;
+	}
+	
+	
+	
+	/*
+	 * (re)write the header, with the number of frames so far
+	 */
+	private void writeHeader(long frames) throws IOException {
+		
+		ByteBuffer header = ByteBuffer.allocate(HEADER)
+		        .order(ByteOrder.LITTLE_ENDIAN);
+		
+		header.put(MAGIC);
+		header.putInt(HEADER);
+		header.putInt(bodies);
+		header.putInt(interval);
+		header.putInt(1 + FIELDS.length);
+		header.putLong(frames);
+		header.putInt(frameBytes);
+		header.putInt(0);
+		
+		putField(header, "step", INT64, 1, 0);
+		for (int f = 0; f < FIELDS.length; f++)
+			putField(header, FIELDS[f], FLOAT64, bodies, 8 + 8L * f * bodies);
+		
+		header.flip();
+		channel.write(header, 0);
+	}
+	
+	
+	
+	private static void putField(ByteBuffer header, String name, int type,
+	        int count, long offset) {
+		
+		final byte[] ascii = name.getBytes(StandardCharsets.US_ASCII);
+		
+		header.put(ascii);
+		for (int b = ascii.length; b < 8; b++)
+			header.put((byte) 0);
+		header.putInt(type);
+		header.putInt(count);
+		header.putLong(offset);
+	}
+}
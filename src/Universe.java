@@ -1,31 +1,287 @@
-
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
 import java.awt.RenderingHints;
-import java.util.Observable;
-import java.util.Observer;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.util.Arrays;
 
 import javax.swing.JPanel;
+import javax.swing.Timer;
 
 /*
  * @author Eric M Evans
- * 
+ *
  * free-body problem. multi-threaded solution. includes main method.
  * for Universe panel, draws bodies.
+ *
+ * paints only frames the simulation has published, never the live
+ * bodies. a timer at the render rate, the display's refresh rate unless
+ * set, repaints when a newer frame has come, so however fast the workers
+ * step, the EDT sees at most one repaint per tick, and the workers never
+ * wait on it.
+ *
+ * between steps the bodies are drawn part way from the frame before the
+ * newest to the newest, by how much of the time between the two has
+ * passed since the newest came. the picture trails the simulation by one
+ * frame, but moves smoothly whether steps come slower than ticks or many
+ * to a tick.
+ *
+ * a few bodies are drawn as antialiased ovals; from RASTER_FROM on they
+ * are drawn into pixels by a BodyRaster. bodies out of view are never
+ * drawn, and labels only for up to LABELS_UP_TO bodies, each large enough
+ * to carry one. a line in the corner gives frames painted and steps taken
+ * per second.
+ *
+ * in density mode the field is drawn as a heat map of mass, or of bodies
+ * when not by mass, by a DensityMap instead, without labels.
+ *
+ * a camera maps the world to the screen: dragging pans, the wheel zooms
+ * about the pointer and a double click goes back to the whole field at
+ * scale 1. only the bodies the frame's index finds in view are drawn, so
+ * zoomed in, a frame costs what the bodies in view cost.
  */
 @SuppressWarnings("serial")
-public class Universe extends JPanel implements Observer {
+public class Universe extends JPanel {
 	
 	private FreeBodies	model;
 	public boolean		showNumbers	= true;
+	public boolean		density		= false;
+	public boolean		byMass		= true;
 	private boolean		wallsNotSet	= true;
+	private Frame		frame		= new Frame();	// newest taken
+	private Frame		previous	= new Frame();	// taken before it
+	private boolean		settled		= true;		// drawn at the newest
+	private boolean		panned;
+	private final Timer	timer;
+	
+	// the bodies in view, by index in the frame, and where and how they are
+	// drawn, on the screen
+	private int[]		seen		= new int[0];
+	private int			drawn;
+	private double[]	x			= new double[0];
+	private double[]	y			= new double[0];
+	private double[]	radius		= new double[0];
+	private double[]	mass		= new double[0];
+	private Color[]		color		= new Color[0];
+	
+	// the camera: the world point at the top left corner, and pixels per
+	// unit of world
+	private double		viewLeft	= 0;
+	private double		viewTop		= 0;
+	private double		zoom		= 1;
+	private static final double	ZOOM_STEP	= 1.25;
+	private static final double	LEAST_ZOOM	= 1e-4, MOST_ZOOM = 1e4;
+	private static final int	MOST_POINTS	= 72;	// label font
+	
+	static final int	RASTER_FROM		= 2000;
+	static final int	LABELS_UP_TO	= 500;
+	private static final double	LABEL_RADIUS	= 3;	// smallest labelled
+	private final BodyRaster	raster			= new BodyRaster();
+	private final DensityMap	heat			= new DensityMap();
+	private Font[]				fonts			= new Font[0];	// by size
+	private static final Font	OVERLAY			= new Font(Font.MONOSPACED,
+	        Font.PLAIN, 11);
+	
+	// for the overlay: paints and the step since the last reading, and the
+	// rates then figured
+	private long		countedFrom;
+	private long		stepFrom;
+	private int			paints;
+	private String		rates			= "";
 	
 	
 	
 	public Universe(FreeBodies model) {
 		this.model = model;
+		this.countedFrom = System.nanoTime();
+		
+		final int rate = model.renderFPS > 0 ? model.renderFPS : refreshRate();
+		timer = new Timer(1000 / rate, new ActionListener() {
+			
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				
+				tick();
+			}
+		});
+		timer.start();
+		
+		Camera camera = new Camera();
+		this.addMouseListener(camera);
+		this.addMouseMotionListener(camera);
+		this.addMouseWheelListener(camera);
+	}
+	
+	
+	
+	/*
+	 * world to screen, and back
+	 */
+	double toScreenX(double worldX) {
+		
+		return (worldX - viewLeft) * zoom;
+	}
+	
+	
+	
+	double toScreenY(double worldY) {
+		
+		return (worldY - viewTop) * zoom;
+	}
+	
+	
+	
+	double toWorldX(double screenX) {
+		
+		return viewLeft + screenX / zoom;
+	}
+	
+	
+	
+	double toWorldY(double screenY) {
+		
+		return viewTop + screenY / zoom;
+	}
+	
+	
+	
+	/*
+	 * true when the mouse has moved the view since last pressed, so its
+	 * release is not a click
+	 */
+	boolean panned() {
+		
+		return panned;
+	}
+	
+	
+	
+	/*
+	 * pans, zooms and resets the camera
+	 */
+	private class Camera extends MouseAdapter {
+		
+		private int	fromX, fromY;	// last place dragged from
+		
+		
+		
+		@Override
+		public void mousePressed(MouseEvent e) {
+			
+			fromX = e.getX();
+			fromY = e.getY();
+			panned = false;
+		}
+		
+		
+		
+		@Override
+		public void mouseDragged(MouseEvent e) {
+			
+			viewLeft -= (e.getX() - fromX) / zoom;
+			viewTop -= (e.getY() - fromY) / zoom;
+			fromX = e.getX();
+			fromY = e.getY();
+			panned = true;
+			repaint();
+		}
+		
+		
+		
+		@Override
+		public void mouseWheelMoved(MouseWheelEvent e) {
+			
+			// keep the world point under the pointer where it is
+			final double worldX = toWorldX(e.getX());
+			final double worldY = toWorldY(e.getY());
+			zoom = Math.max(LEAST_ZOOM, Math.min(MOST_ZOOM, zoom
+			        * Math.pow(ZOOM_STEP, -e.getPreciseWheelRotation())));
+			viewLeft = worldX - e.getX() / zoom;
+			viewTop = worldY - e.getY() / zoom;
+			repaint();
+		}
+		
+		
+		
+		@Override
+		public void mouseClicked(MouseEvent e) {
+			
+			if (e.getClickCount() != 2)
+				return;
+			
+			viewLeft = 0;
+			viewTop = 0;
+			zoom = 1;
+			repaint();
+		}
+	}
+	
+	
+	
+	/*
+	 * return the refresh rate of the screen, or 60 when unknown
+	 */
+	private static int refreshRate() {
+		
+		if (GraphicsEnvironment.isHeadless())
+			return 60;
+		
+		final int hz = GraphicsEnvironment.getLocalGraphicsEnvironment()
+		        .getDefaultScreenDevice().getDisplayMode().getRefreshRate();
+		
+		return hz > 0 ? hz : 60;
+	}
+	
+	
+	
+	/*
+	 * getter
+	 */
+	public int getFrameRate() {
+		
+		return 1000 / timer.getDelay();
+	}
+	
+	
+	
+	/*
+	 * setter. frames painted per second
+	 */
+	public void setFrameRate(int fps) {
+		
+		timer.setDelay(1000 / fps);
+	}
+	
+	
+	
+	/*
+	 * on the EDT, once per tick: repaint when a newer frame has come or the
+	 * last is still being moved towards, and let the body controls catch up
+	 * while playing
+	 */
+	private void tick() {
+		
+		if (wallsNotSet && this.getWidth() > 0) {
+			model.setRightWall((int) this.getSize().getWidth());
+			model.setBottomWall((int) this.getSize().getHeight());
+			wallsNotSet = false;
+		}
+		
+		if (model.frames.newest() == frame.seq) {
+			if (!settled)
+				this.repaint();
+			return;
+		}
+		
+		this.repaint();
+		if (model.isPlaying())
+			model.refreshObservers();
 	}
 	
 	
@@ -37,34 +293,102 @@ public class Universe extends JPanel implements Observer {
 		
 		super.paintComponent(g2);
 		
-		RenderingHints rh = new RenderingHints(RenderingHints.KEY_ANTIALIASING,
-		        RenderingHints.VALUE_ANTIALIAS_ON);
-		g2.setRenderingHints(rh);
+		final Frame newer = model.frames.take(previous, frame.seq);
+		if (newer != null) {
+			previous = frame;
+			frame = newer;
+		}
 		
-		drawBodies(g2);
+		final long now = System.nanoTime();
+		final double t = progress(now);
+		settled = t >= 1;
+		drawBodies(g2, previous, frame, t);
+		drawRates(g2, now);
 	}
 	
 	
 	
-	private void drawBodies(Graphics2D g2) {
+	/*
+	 * return how far to draw from the previous frame to the newest, 0 to
+	 * 1, at the given time: 1 unless both are steps, in order
+	 */
+	private double progress(long now) {
 		
-		for (Body body : model.bodies) {
-			g2.setColor(body.getColor());
-			g2.fillOval((int) (body.getPosition().getX() - body.getRadius()),
-			        (int) (body.getPosition().getY() - body.getRadius()),
-			        (int) body.getRadius() * 2, (int) body.getRadius() * 2);
+		if (previous.seq == 0 || previous.step < 0
+		        || previous.step >= frame.step)
+			return 1;
+		
+		final double between = frame.nanos - previous.nanos;
+		
+		return between <= 0 ? 1 : Math.min(1, (now - frame.nanos) / between);
+	}
+	
+	
+	
+	/*
+	 * draw the bodies of frame f in view, each at t of the way from where
+	 * it was in frame p when it is there under the same index
+	 */
+	private void drawBodies(Graphics2D g2, Frame p, Frame f, double t) {
+		
+		final int width = this.getWidth();
+		final int height = this.getHeight();
+		
+		if (seen.length < f.count) {
+			seen = new int[f.x.length];
+			x = new double[seen.length];
+			y = new double[seen.length];
+			radius = new double[seen.length];
+			mass = new double[seen.length];
+			color = new Color[seen.length];
+		}
+		
+		// the view, in world coordinates
+		final int n = f.visible(toWorldX(0), toWorldY(0), toWorldX(width),
+		        toWorldY(height), seen);
+		
+		final double s = 1 - t;
+		for (int k = 0; k < n; k++) {
+			final int i = seen[k];
+			final boolean moved = t < 1 && i < p.count && p.id[i] == f.id[i];
+			x[k] = toScreenX(moved ? s * p.x[i] + t * f.x[i] : f.x[i]);
+			y[k] = toScreenY(moved ? s * p.y[i] + t * f.y[i] : f.y[i]);
+			radius[k] = f.radius[i] * zoom;
+			mass[k] = f.mass[i];
+			color[k] = f.color[i];
 		}
+		drawn = n;
 		
-		if (this.showNumbers) {
+		if (density) {
+			g2.drawImage(heat.draw(width, height, x, y, byMass ? mass : null, n),
+			        0, 0, null);
+			return;
+		}
+		
+		if (n >= RASTER_FROM)
+			g2.drawImage(raster.draw(width, height, this.getBackground(), x, y,
+			        radius, color, n), 0, 0, null);
+		else {
+			g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+			        RenderingHints.VALUE_ANTIALIAS_ON);
+			for (int k = 0; k < n; k++) {
+				// at least a pixel, however far out
+				final int d = Math.max(1, (int) (2 * radius[k]));
+				g2.setColor(color[k]);
+				g2.fillOval((int) (x[k] - radius[k]), (int) (y[k] - radius[k]),
+				        d, d);
+			}
+		}
+		
+		if (this.showNumbers && n <= LABELS_UP_TO) {
 			g2.setColor(Color.WHITE);
-			for (Body body : model.bodies) {
-				g2.setFont(new Font("Courier", Font.BOLD,
-				        (int) (10 * (1 + body.getRadius() / 10))));
-				g2.drawString("" + body.getID(),
-				        (int) (body.getPosition().getX()
-				                + body.getRadius() * 0.80),
-				        (int) (body.getPosition().getY()
-				                - body.getRadius() * 0.80));
+			for (int k = 0; k < n; k++) {
+				final double r = radius[k];
+				if (r < LABEL_RADIUS)
+					continue;
+				g2.setFont(font((int) Math.min(MOST_POINTS, 10 * (1 + r / 10))));
+				g2.drawString(Integer.toString(f.id[seen[k]]), (int) (x[k] + r
+				        * 0.80), (int) (y[k] - r * 0.80));
 			}
 		}
 		
@@ -72,22 +396,50 @@ public class Universe extends JPanel implements Observer {
 	
 	
 	
-	@Override
-	public void update(Observable arg0, Object arg1) {
+	/*
+	 * return the label font of the given size, made once
+	 */
+	private Font font(int size) {
 		
-		if (wallsNotSet) {
-			model.setRightWall((int) this.getSize().getWidth());
-			model.setBottomWall((int) this.getSize().getHeight());
-			wallsNotSet = false;
+		if (size >= fonts.length)
+			fonts = Arrays.copyOf(fonts, size + 1);
+		if (fonts[size] == null)
+			fonts[size] = new Font("Courier", Font.BOLD, size);
+		
+		return fonts[size];
+	}
+	
+	
+	
+	/*
+	 * draw frames painted and steps taken per second, over the last second
+	 * or so, and the bodies drawn
+	 */
+	private void drawRates(Graphics2D g2, long now) {
+		
+		paints++;
+		if (now - countedFrom >= 1_000_000_000L) {
+			final double seconds = (now - countedFrom) / 1e9;
+			final long step = frame.step < 0 ? stepFrom : frame.step;
+			rates = Math.round(paints / seconds) + " fps  "
+			        + Math.round(Math.max(0, step - stepFrom) / seconds)
+			        + " steps/s  " + drawn + " of " + frame.count
+			        + " bodies  x" + (float) zoom;
+			countedFrom = now;
+			stepFrom = step;
+			paints = 0;
 		}
 		
-		this.repaint();
+		g2.setFont(OVERLAY);
+		g2.setColor(Color.GREEN);
+		g2.drawString(rates, this.getInsets().left + 4,
+		        this.getInsets().top + 14);
 	}
 	
 	/*
 	 * @Override
 	 * public Dimension getPreferredSize() {
-	 * 
+	 *
 	 * return new Dimension(750, 560);
 	 * }
 	 */
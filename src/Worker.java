@@ -1,5 +1,6 @@
-
-import java.awt.Point;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
 
 /*
  * @author Eric M Evans
@@ -11,39 +12,102 @@ public class Worker extends Thread {
 	private int			ID;
 	private FreeBodies	model;
 	private int			steps;
+	private int[]		rivals	= new int[0];
+	
+	// fused step scratch: predictions, replayed velocities, sorted pairs
+	private double[]	nextX	= new double[0];
+	private double[]	nextY	= new double[0];
+	private double[]	bumpVX	= new double[0];
+	private double[]	bumpVY	= new double[0];
+	private int[]		bumped	= new int[0];
+	private int			stamp	= 0;
+	private long[]		pairs	= new long[0];
+	
+	// the store's arrays as of the start of this step. a fused step swaps
+	// the store's buffers before it ends, so it must not re-read them
+	private double[]	px, py, vx, vy;
+	private double[]	toPX, toPY, toVX, toVY;
+	
+	private static final com.sun.management.ThreadMXBean	THREADS	= (com.sun.management.ThreadMXBean) ManagementFactory
+	        .getThreadMXBean();
+	
+	// heap bytes this thread allocated, sampled for --alloc-check
+	long				allocatedFrom	= -1;
+	long				allocatedTo		= -1;
+	int					measuredSteps	= 0;
+	private int[]		stack	= new int[QuadTree.STACK_SIZE];
+	
+	// this step so far, for StepMetrics: time per phase, the phase being
+	// timed and since when, barrier calls and gravity interactions
+	private final long[]	phaseNanos		= new long[StepMetrics.PHASES.length];
+	private int				phase;
+	private long			lap;
+	private int				waits;
+	private long			interactions;
+	
+	// flight recorder events, and collisions found so far this step
+	private final StepEvents	events;
+	private int					collisions;
+	
+	// GUI pace: when the next step is due, 0 for now
+	private long				nextStepAt;
+	
+	// this worker's --trace timeline, or null
+	private final Trace.Buffer	trace;
+	
+	// touching within this distance counts as a collision, as in Body
+	static final double			EPSILON	= -1;
+	
+	// barrier calls in a step without Barnes-Hut or collision levels
+	static final int			BARRIERS_PER_STEP	= 4;
+	static final int			FUSED_BARRIERS		= 2;
+	
+	// below this many pairs in a step, worker 0 resolves them alone
+	private static final int	PARALLEL_PAIRS	= 64;
 	
 	
 	
 	public Worker(int i, FreeBodies model) {
 		this.ID = i;
 		this.model = model;
+		this.events = new StepEvents(i);
+		this.trace = model.trace == null ? null : model.trace.buffer(i);
 	}
 	
 	
 	
 	/*
-	 * Dissemination Barrier
+	 * wait for every other worker, with the barrier chosen on the command
+	 * line
 	 */
 	private void barrier() {
 		
-		int i;
-		int sendID;
+		final int resume = phase;
 		
-		for (i = 0; i < model.rounds; i++) {
-			
-			sendID = (ID + (1 << i)) % model.numWorkers;
-			
-			model.barrierMsgs[i][sendID].release(); // V(e)
-			
-			try {
-				model.barrierMsgs[i][ID].acquire(); // P(e)
-			}
-			catch (InterruptedException e) {
-				e.printStackTrace(System.out);
-				System.exit(1);
-			}
-		}
+		enter(StepMetrics.BARRIER);
+		model.barrier.await(ID);
+		waits++;
+		enter(resume);
+	}
+	
+	
+	
+	/*
+	 * charge the time since the last call to the current phase, and start
+	 * timing the next one
+	 */
+	private void enter(int next) {
 		
+		final long now = System.nanoTime();
+		
+		phaseNanos[phase] += now - lap;
+		if (next != phase) {
+			events.enter(phase, next, model.state.size, collisions);
+			if (trace != null)
+				trace.enter(now, phase, next);
+		}
+		phase = next;
+		lap = now;
 	}
 	
 	
@@ -57,12 +121,15 @@ public class Worker extends Thread {
 	 */
 	public void run() {
 		
-		steps = 0;
+		steps = model.startStep;
 		while (true) {
 			// System.out.println("Worker: " + ID + ", steps: " + steps);
 			if (model.numTimeSteps != 0 && steps >= model.numTimeSteps)
 				break;
 			
+			if (steps == model.allocWarmup)
+				allocatedFrom = allocatedBytes();
+			
 			while (!model.play)
 				try {
 					Thread.sleep(500);
@@ -72,39 +139,332 @@ public class Worker extends Thread {
 					e1.printStackTrace();
 				}
 			
-			if (model.gravity) {
-				calculateGForces(); // benefits greatly from multi-threading,
-				                    // many calculations
-				barrier();
-			}
+			phase = StepMetrics.GRAVITY;
+			lap = System.nanoTime();
+			collisions = 0;
+			events.beginStep(phase);
+			if (trace != null)
+				trace.beginStep(lap, phase);
 			
-			if (ID == 0)
-				calculateCollisions(); // does not need multi-threading,
-				                       // few calculations
+			if (model.fused)
+				fusedStep();
+			else
+				phasedStep();
+			
+			if (ID == 0) { // only needs to be called once, by first worker
+				enter(StepMetrics.OBSERVERS);
+				model.publishStep(steps + 1);
 				
-			barrier();
+				// nothing moves until the next step's barriers
+				if (model.recorder != null
+				        && (steps + 1) % model.recorder.interval() == 0)
+					model.recorder.record(steps + 1, model.state);
+				
+				if (model.checkpoints != null
+				        && (steps + 1) % model.checkpoints.interval() == 0)
+					model.takeCheckpoint(steps + 1);
+			}
 			
-			moveBodies(); // benefits from multi-threading,
-			              // many calculations
+			enter(phase); // charges the last phase
+			events.endStep(phase, model.state.size, collisions);
+			if (trace != null)
+				trace.endStep(lap, phase);
+			model.metrics.endStep(ID, phaseNanos, waits, interactions);
+			waits = 0;
+			interactions = 0;
 			
-			barrier();
+			if (model.usingGUI)
+				pace();
+			steps++;
+		}
+		if (allocatedFrom >= 0) {
+			allocatedTo = allocatedBytes();
+			measuredSteps = steps - model.allocWarmup;
+		}
+	}
+	
+	
+	
+	/*
+	 * hold steps to the model's steps per second, against a deadline that
+	 * advances a period each step, so the time a step took is not slept
+	 * again. a worker that falls a period behind, as after a pause, starts
+	 * over from now rather than racing to catch up
+	 */
+	private void pace() {
+		
+		final int rate = model.getStepsPerSecond();
+		if (rate == FreeBodies.UNCAPPED) {
+			nextStepAt = 0;
+			return;
+		}
+		
+		final long period = 1_000_000_000L / rate;
+		long now = System.nanoTime();
+		nextStepAt = nextStepAt == 0 || now - nextStepAt > period ? now
+		        + period : nextStepAt + period;
+		
+		while (nextStepAt - (now = System.nanoTime()) > 0)
+			LockSupport.parkNanos(nextStepAt - now);
+	}
+	
+	
+	
+	/*
+	 * return heap bytes allocated by this thread so far. the bean is looked
+	 * up once; the lookup itself allocates
+	 */
+	static long allocatedBytes() {
+		
+		return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+	
+	
+	
+	/*
+	 * one step as separate gravity, collision and move phases
+	 */
+	private void phasedStep() {
+		
+		viewStore(false);
+		
+		// positions and velocities hold still until moveBodies, so the
+		// collision broad phase can be built alongside the forces
+		if (ID == 0) {
+			enter(StepMetrics.COLLISIONS);
+			model.grid.build(model.state, model.getFPS());
+			enter(StepMetrics.GRAVITY);
+		}
+		
+		if (model.gravity) {
+			if (model.barnesHut) {
+				if (ID == 0)
+					model.tree.build(model.state);
+				barrier();
+				calculateTreeForces();
+			}
+			else
+				calculateGForces(); // benefits greatly from
+				                    // multi-threading, many calculations
+		}
+		
+		barrier();
+		
+		enter(StepMetrics.COLLISIONS);
+		detectCollisions(); // split over all workers
+		
+		barrier();
+		
+		if (ID == 0)
+			gatherCollisions();
+		
+		barrier();
+		
+		resolveCollisions(); // level by level, when there are many
+		
+		// benefits from multi-threading, many calculations
+		enter(StepMetrics.MOVE);
+		reduceAndMove(false);
+		
+		barrier();
+	}
+	
+	
+	
+	/*
+	 * run one phase of a phased step alone and wait at a barrier after it,
+	 * for the phase benchmark; phase is one of StepMetrics'. gravity sums
+	 * and zeroes this worker's block of the rows it added to, as a step
+	 * does, and the collision phase builds its own broad phase. return a
+	 * value the phase computed, for the benchmark to consume
+	 */
+	double runPhase(int phase) {
+		
+		final BodyStore s = model.state;
+		final int from = s.blockStart(ID, model.numWorkers);
+		final int to = s.blockStart(ID + 1, model.numWorkers);
+		double result = 0;
+		
+		viewStore(false);
+		
+		switch (phase) {
+			case StepMetrics.GRAVITY:
+				calculateGForces();
+				barrier();
+				s.reduceForces(from, to);
+				result = from < to ? s.netX[from] : 0;
+				break;
 			
-			if (ID == 0) // only needs to be called once, by first worker
-				model.updateObservers();
+			case StepMetrics.COLLISIONS:
+				if (ID == 0)
+					model.grid.build(model.state, model.getFPS());
+				barrier();
+				detectCollisions();
+				barrier();
+				if (ID == 0)
+					gatherCollisions();
+				barrier();
+				resolveCollisions();
+				result = model.contacts.total;
+				break;
 			
-			if (model.usingGUI) {
-				try {
-					Thread.sleep((long) (1000 / model.getFPS()));
-				}
-				catch (InterruptedException e) {
-					System.out.println("Error in FPS sleep");
-					e.printStackTrace();
-				}
-			}
-			steps++;
+			case StepMetrics.MOVE:
+				reduceAndMove(false);
+				result = from < to ? s.px[from] : 0;
+				break;
+			
+			default:
+				// the barrier alone
 		}
-		// System.out.println("worker " + ID + " done");
-		model.oneMoreWorkerDone();
+		
+		barrier();
+		
+		return result;
+	}
+	
+	
+	
+	/*
+	 * one step in two barriers. a single sweep over this worker's pairs adds
+	 * gravity and records collisions. after the first barrier every worker
+	 * replays all of the step's collisions, in order, on its own copy of
+	 * the velocities involved, then moves its own bodies into the back
+	 * buffers. nobody writes what another worker may still read, so the
+	 * second barrier only has to hold the next step back
+	 */
+	private void fusedStep() {
+		
+		final BodyStore s = model.state;
+		final int n = s.size;
+		final double fps = model.getFPS();
+		final int from, to, step;
+		
+		if (model.partition.equals(ForceKernel.BALANCED)) {
+			from = ForceKernel.balancedStart(ID, model.numWorkers, n);
+			to = ForceKernel.balancedStart(ID + 1, model.numWorkers, n);
+			step = 1;
+		}
+		else {
+			from = ID;
+			to = n;
+			step = model.numWorkers;
+		}
+		
+		if (nextX.length < n) {
+			final int cap = s.px.length;
+			nextX = new double[cap];
+			nextY = new double[cap];
+			bumpVX = new double[cap];
+			bumpVY = new double[cap];
+			bumped = new int[cap];
+		}
+		
+		viewStore(true);
+		
+		// every worker predicts every body, rather than wait on a barrier
+		for (int i = 0; i < n; i++) {
+			nextX[i] = px[i] + vx[i] * 1.5 / fps;
+			nextY[i] = py[i] + vy[i] * 1.5 / fps;
+		}
+		
+		final long start = System.nanoTime();
+		
+		if (ID == 0 && model.gravity)
+			interactions += ForceKernel.pairsBefore(n, n);
+		
+		model.contacts.clear(ID);
+		ForceKernel.sweep(s, from, to, step, ID, model.getG(), model.gravity,
+		        nextX, nextY, model.contacts);
+		
+		model.busyNanos[ID] += System.nanoTime() - start;
+		
+		barrier();
+		
+		enter(StepMetrics.COLLISIONS);
+		replayCollisions(s);
+		
+		enter(StepMetrics.MOVE);
+		reduceAndMove(true);
+		
+		// fields only; everyone else reads them after the barrier
+		if (ID == 0)
+			s.swap();
+		
+		barrier();
+	}
+	
+	
+	
+	/*
+	 * resolve every pair found this step, in ascending (hero, rival) order,
+	 * on this worker's private velocity copies
+	 */
+	private void replayCollisions(BodyStore s) {
+		
+		final Contacts contacts = model.contacts;
+		
+		int total = 0;
+		for (int w = 0; w < model.numWorkers; w++)
+			total += contacts.count(w);
+		collisions = total;
+		
+		if (ID == 0)
+			model.recordCollisions(total);
+		
+		if (pairs.length < total)
+			pairs = new long[Math.max(2 * total, 2 * s.size)];
+		
+		int p = 0;
+		for (int w = 0; w < model.numWorkers; w++)
+			for (int c = 0; c < contacts.count(w); c++)
+				pairs[p++] = contacts.packed(w, c);
+		
+		Arrays.sort(pairs, 0, total);
+		
+		stamp++;
+		for (p = 0; p < total; p++) {
+			final int hero = (int) (pairs[p] >>> 32);
+			final int rival = (int) pairs[p];
+			
+			bump(s, hero);
+			bump(s, rival);
+			collide(s, hero, rival, bumpVX, bumpVY);
+		}
+	}
+	
+	
+	
+	/*
+	 * take this step's view of the store. a fused step moves bodies into
+	 * the back buffers, a phased one in place
+	 */
+	private void viewStore(boolean fused) {
+		
+		final BodyStore s = model.state;
+		
+		px = s.px;
+		py = s.py;
+		vx = s.vx;
+		vy = s.vy;
+		toPX = fused ? s.pxBack : px;
+		toPY = fused ? s.pyBack : py;
+		toVX = fused ? s.vxBack : vx;
+		toVY = fused ? s.vyBack : vy;
+	}
+	
+	
+	
+	/*
+	 * start a private velocity copy of body b, once per step
+	 */
+	private void bump(BodyStore s, int b) {
+		
+		if (bumped[b] == stamp)
+			return;
+		
+		bumped[b] = stamp;
+		bumpVX[b] = vx[b];
+		bumpVY[b] = vy[b];
 	}
 	
 	
@@ -114,102 +474,122 @@ public class Worker extends Thread {
 	 */
 	private void calculateGForces() {
 		
-		Point.Double direction = new Point.Double(0, 0);
-		double magnitude = 0;
-		double distance = 0;
+		final BodyStore s = model.state;
 		final double G = model.getG();
+		final int n = s.size;
+		final long start = System.nanoTime();
 		
-		// loop by striping
-		for (int i = ID; i < model.bodies.size(); i += model.numWorkers) {
-			Body heroI = model.bodies.get(i);
-			// System.out.println("hero: " + heroI.getID());
-			final double heroPX = heroI.getPosition().x;
-			final double heroPY = heroI.getPosition().y;
-			final double heroMass = heroI.getMass();
+		// every pair, whoever figures it
+		if (ID == 0)
+			interactions += ForceKernel.pairsBefore(n, n);
+		
+		switch (model.partition) {
+			case ForceKernel.BALANCED:
+				// contiguous hero rows, equal pair counts
+				model.kernel.accumulate(s,
+				        ForceKernel.balancedStart(ID, model.numWorkers, n),
+				        ForceKernel.balancedStart(ID + 1, model.numWorkers, n),
+				        1, ID, G);
+				break;
 			
-			for (int k = i + 1; k < model.bodies.size(); k++) {
-				Body rivalJ = model.bodies.get(k);
-				// System.out.println("rival: " + rivalJ.getID());
-				final double rivalPX = rivalJ.getPosition().x;
-				final double rivalPY = rivalJ.getPosition().y;
-				final double rivalMass = rivalJ.getMass();
-				
-				distance = Math.sqrt((heroPX - rivalPX) * (heroPX - rivalPX)
-				        + (heroPY - rivalPY) * (heroPY - rivalPY));
-				magnitude = (G * heroMass * rivalMass) / (distance * distance);
-				
-				direction.setLocation(rivalPX - heroPX, rivalPY - heroPY);
-				// System.out.println("mag: " + magnitude);
-				
-				heroI.setForce(ID,
-				        new Point.Double(
-				                heroI.getForce(ID).x
-				                        + magnitude * direction.x / distance,
-				                heroI.getForce(ID).y
-				                        + magnitude * direction.y / distance));
-				
-				rivalJ.setForce(ID,
-				        new Point.Double(
-				                rivalJ.getForce(ID).x
-				                        - magnitude * direction.x / distance,
-				                rivalJ.getForce(ID).y
-				                        - magnitude * direction.y / distance));
-			}
+			case ForceKernel.FORKJOIN:
+				// the pool does the work and its own timing
+				if (ID == 0)
+					model.forkJoin.run(s, G);
+				return;
+			
+			default:
+				// loop by striping
+				model.kernel.accumulate(s, ID, n, model.numWorkers, ID, G);
 		}
 		
+		model.busyNanos[ID] += System.nanoTime() - start;
 	}
 	
 	
 	
 	/*
-	 * update positions according to forces and velocities
+	 * figure gravitational force on each object from the Barnes-Hut tree
 	 */
-	private void moveBodies() {
+	private void calculateTreeForces() {
 		
-		Point.Double deltaV = new Point.Double(0, 0);
-		Point.Double deltaP = new Point.Double(0, 0);
+		final BodyStore s = model.state;
+		final QuadTree tree = model.tree;
+		final double G = model.getG();
+		final double theta = model.theta;
 		
-		for (int i = ID; i < model.bodies.size(); i += model.numWorkers) {
-			Body body = model.bodies.get(i);
-			Point.Double netForce = body.getNetForce();
-			
-			final double mass = body.getMass();
-			final double fps = (double) model.getFPS();
-			final double vX = body.getVelocity().x;
-			final double vY = body.getVelocity().y;
-			
-			deltaV.setLocation(netForce.x / mass / fps,
-			        netForce.y / mass / fps);
-			
-			deltaP.setLocation((vX + deltaV.x / 2) / fps,
-			        (vY + deltaV.y / 2) / fps);
+		// loop by striping
+		for (int i = ID; i < s.size; i += model.numWorkers)
+			interactions += tree.addForce(s, i, ID, G, theta, stack);
+	}
+	
+	
+	
+	/*
+	 * sum the force rows over this worker's block of bodies, then move the
+	 * block. any worker may move any body once forces and collisions are
+	 * done, so the block is contiguous whatever the partition
+	 */
+	private void reduceAndMove(boolean fused) {
+		
+		final BodyStore s = model.state;
+		final int from = s.blockStart(ID, model.numWorkers);
+		final int to = s.blockStart(ID + 1, model.numWorkers);
+		
+		s.reduceForces(from, to);
+		moveBodies(from, to, fused);
+	}
+	
+	
+	
+	/*
+	 * update positions according to net forces and velocities, for bodies
+	 * [from, to). a fused step starts from the replayed velocities and
+	 * writes into the back buffers
+	 */
+	private void moveBodies(int from, int to, boolean fused) {
+		
+		final BodyStore s = model.state;
+		final double[] radius = s.radius;
+		final double[] netX = s.netX;
+		final double[] netY = s.netY;
+		final double fps = (double) model.getFPS();
+		
+		for (int i = from; i < to; i++) {
+			final double mass = s.mass[i];
+			final boolean collided = fused && bumped[i] == stamp;
+			final double vX = collided ? bumpVX[i] : vx[i];
+			final double vY = collided ? bumpVY[i] : vy[i];
 			
-			body.setVelocity(new Point.Double(vX + deltaV.x, vY + deltaV.y));
+			final double deltaVX = netX[i] / mass / fps;
+			final double deltaVY = netY[i] / mass / fps;
 			
-			body.setPosition(new Point.Double(body.getPosition().x + deltaP.x,
-			        body.getPosition().y + deltaP.y));
+			final double deltaPX = (vX + deltaVX / 2) / fps;
+			final double deltaPY = (vY + deltaVY / 2) / fps;
 			
-			// System.out.println(body.getID() + ": " + body.getForce());
+			toVX[i] = BodyStore.nudge(vX + deltaVX);
+			toVY[i] = BodyStore.nudge(vY + deltaVY);
 			
-			body.zeroOutForces();
+			toPX[i] = px[i] + deltaPX;
+			toPY[i] = py[i] + deltaPY;
 			
 			/*
 			 * Bounce off walls and corral, if applicable
 			 */
 			if (model.walls) {
+				final double r = radius[i];
+				
 				// Left Wall and Right Wall
-				if ((body.leftBound() <= model.leftWall
-				        && body.getVelocity().x < 0)
-				        || (body.rightBound() >= model.rightWall
-				                && body.getVelocity().x > 0))
-					body.reverseXVelocity();
+				if (((int) (toPX[i] - r) <= model.leftWall && toVX[i] < 0)
+				        || ((int) (toPX[i] + r) >= model.rightWall
+				                && toVX[i] > 0))
+					toVX[i] = BodyStore.nudge(-toVX[i]);
 				
 				// Top Wall and Bottom Wall
-				if ((body.upperBound() <= model.topWall
-				        && body.getVelocity().y < 0)
-				        || (body.lowerBound() >= model.bottomWall
-				                && body.getVelocity().y > 0))
-					body.reverseYVelocity();
+				if (((int) (toPY[i] - r) <= model.topWall && toVY[i] < 0)
+				        || ((int) (toPY[i] + r) >= model.bottomWall
+				                && toVY[i] > 0))
+					toVY[i] = BodyStore.nudge(-toVY[i]);
 			}
 		}
 		
@@ -218,21 +598,37 @@ public class Worker extends Thread {
 	
 	
 	/*
-	 * check for elastic collisions and set new velocities
+	 * find the colliding pairs among this worker's striped heroes. the
+	 * spatial hash narrows each hero's rivals to its neighbouring cells
 	 */
-	private void calculateCollisions() {
+	private void detectCollisions() {
 		
-		// System.out.println("checking collisions");
+		final BodyStore s = model.state;
+		final SpatialHash grid = model.grid;
+		final Contacts contacts = model.contacts;
+		final double[] nextX = grid.nextX;
+		final double[] nextY = grid.nextY;
+		final int n = s.size;
 		
-		for (int i = 0; i < model.bodies.size() - 1; i++) {
-			Body hero = model.bodies.get(i);
-			// System.out.println("hero: " + hero.getID());
+		if (rivals.length < n)
+			rivals = new int[s.px.length];
+		
+		contacts.clear(ID);
+		
+		for (int i = ID; i < n - 1; i += model.numWorkers) {
+			final double heroNextX = nextX[i];
+			final double heroNextY = nextY[i];
+			final double heroRadius = s.radius[i];
+			final int count = grid.candidates(i, rivals);
 			
-			for (int k = i + 1; k < model.bodies.size(); k++) {
-				Body rival = model.bodies.get(k);
-				// System.out.println("rival: " + rival.getID());
-				if (hero.doIntersect(rival, model.getFPS(), steps))
-					collide(hero, rival);
+			for (int c = 0; c < count; c++) {
+				final int k = rivals[c];
+				final double dX = heroNextX - nextX[k];
+				final double dY = heroNextY - nextY[k];
+				final double distCenters = Math.sqrt(dX * dX + dY * dY);
+				
+				if (distCenters - (heroRadius + s.radius[k]) <= EPSILON)
+					contacts.add(ID, i, k);
 			}
 		}
 	}
@@ -240,28 +636,76 @@ public class Worker extends Thread {
 	
 	
 	/*
-	 * figure new velocities for hero and rival
+	 * merge every worker's pairs and count them. few pairs are resolved
+	 * here and now, since a level costs a barrier
+	 */
+	private void gatherCollisions() {
+		
+		final BodyStore s = model.state;
+		final Contacts contacts = model.contacts;
+		
+		contacts.gather(s.size);
+		model.recordCollisions(contacts.total);
+		
+		contacts.parallel = model.numWorkers > 1
+		        && contacts.total >= PARALLEL_PAIRS;
+		
+		if (!contacts.parallel)
+			for (int p = 0; p < contacts.total; p++)
+				collide(s, contacts.pairHero[p], contacts.pairRival[p],
+				        vx, vy);
+	}
+	
+	
+	
+	/*
+	 * set new velocities for the gathered pairs, one level at a time. pairs
+	 * within a level share no body, so workers can stripe over them
 	 */
-	private void collide(Body hero, Body rival) {
+	private void resolveCollisions() {
 		
-		model.recordCollision();
+		final BodyStore s = model.state;
+		final Contacts contacts = model.contacts;
+		
+		collisions = contacts.total;
+		
+		if (!contacts.parallel)
+			return;
+		
+		for (int l = 0; l < contacts.levels; l++) {
+			for (int p = contacts.levelStart[l] + ID; p < contacts.levelStart[l
+			        + 1]; p += model.numWorkers)
+				collide(s, contacts.pairHero[p], contacts.pairRival[p],
+				        vx, vy);
+			
+			barrier();
+		}
+	}
+	
+	
+	
+	/*
+	 * figure new velocities for hero and rival, reading and writing them in
+	 * vx and vy
+	 */
+	private void collide(BodyStore s, int hero, int rival, double[] vx,
+	        double[] vy) {
 		
 		// Masses
-		final double m1 = hero.getMass();
-		final double m2 = rival.getMass();
+		final double m1 = s.mass[hero];
+		final double m2 = s.mass[rival];
 		
 		// Initial Positions
-		final double x1 = hero.getPosition().x;
-		final double y1 = hero.getPosition().y;
-		final double x2 = rival.getPosition().x;
-		final double y2 = rival.getPosition().y;
+		final double x1 = px[hero];
+		final double y1 = py[hero];
+		final double x2 = px[rival];
+		final double y2 = py[rival];
 		
 		// Initial Component Velocities
-		final double v1x = hero.getVelocity().x;
-		final double v1y = hero.getVelocity().y;
-		final double v2x = rival.getVelocity().x;
-		final double v2y = rival.getVelocity().y;
-		
+		final double v1x = vx[hero];
+		final double v1y = vy[hero];
+		final double v2x = vx[rival];
+		final double v2y = vy[rival];
 		// define sqrt
 		final double sqrt = Math
 		        .sqrt((x2 - x1) * (x2 - x1) + (y2 - y1) * (y2 - y1));
@@ -299,8 +743,10 @@ public class Worker extends Thread {
 		final double v2fy = v2nfy + v2ty;
 		
 		// Assign new velocities to bodies
-		hero.setVelocity(new Point.Double(v1fx, v1fy));
-		rival.setVelocity(new Point.Double(v2fx, v2fy));
+		vx[hero] = BodyStore.nudge(v1fx);
+		vy[hero] = BodyStore.nudge(v1fy);
+		vx[rival] = BodyStore.nudge(v2fx);
+		vy[rival] = BodyStore.nudge(v2fy);
 		
 	}
 	
@@ -0,0 +1,145 @@
+import java.awt.Point;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/*
+ * @author Eric M Evans
+ *
+ * times StateWriter against the String.format path FreeBodies used to
+ * write output.txt with, on scattered bodies, and checks the two files
+ * are identical byte for byte. the bodies include values on and around
+ * every kind of rounding tie.
+ */
+public class WriteBench {
+	
+	private static final int[]		BODIES	= { 1000, 100000, 400000 };
+	private static final int		REPEATS	= 5;
+	private static final String		OLD		= "write-bench-format.txt";
+	private static final String		NEW		= "write-bench-writer.txt";
+	
+	private static final double[]	EDGES	= { 0, -0.0, 0.0005, -0.0005,
+	        0.0004999, 1.0005, -2.5005, 0.1235, 9999.9995, 99999.9995,
+	        123456789.0125, 1e20, -1e300, Double.MIN_VALUE, Double.NaN,
+	        Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY };
+	
+	
+	
+	/*
+	 * print the best of several timings of each path, per body count
+	 */
+	public static void run() {
+		
+		System.out.println("final-state output, best of " + REPEATS
+		        + " runs, milliseconds");
+		System.out.println(String.format("%8s %12s %12s %8s %10s", "bodies",
+		        "format", "writer", "speedup", "identical"));
+		
+		final StateWriter writer = new StateWriter();
+		boolean identical = true;
+		
+		try {
+			for (int n : BODIES) {
+				final BodyStore s = new BodyStore(n, 1);
+				final ArrayList<Body> bodies = scatter(n, s);
+				
+				long format = Long.MAX_VALUE;
+				long fast = Long.MAX_VALUE;
+				for (int r = 0; r < REPEATS; r++) {
+					long start = System.nanoTime();
+					writeFormatted(OLD, bodies);
+					format = Math.min(format, System.nanoTime() - start);
+					
+					start = System.nanoTime();
+					writer.write(NEW, bodies, s);
+					fast = Math.min(fast, System.nanoTime() - start);
+				}
+				
+				final boolean same = Arrays.equals(
+				        Files.readAllBytes(Paths.get(OLD)),
+				        Files.readAllBytes(Paths.get(NEW)));
+				identical = identical && same;
+				
+				System.out.println(String.format("%8d %12.1f %12.1f %8.1f %10s",
+				        n, format / 1e6, fast / 1e6, (double) format / fast,
+				        same ? "yes" : "NO"));
+			}
+			
+			Files.delete(Paths.get(OLD));
+			Files.delete(Paths.get(NEW));
+		}
+		catch (IOException e) {
+			System.out.println("Error printing to file");
+			e.printStackTrace();
+		}
+		
+		System.out.println(identical ? "outputs identical"
+		        : "outputs DIFFER");
+	}
+	
+	
+	
+	/*
+	 * n bodies in the store, their values mostly scattered over the walls
+	 * and speeds of a run, a few edge cases and a few rounded to a tie
+	 */
+	private static ArrayList<Body> scatter(int n, BodyStore s) {
+		
+		final Random rand = new Random(FreeBodies.DEFAULT_SEED);
+		ArrayList<Body> bodies = new ArrayList<>();
+		
+		for (int i = 0; i < n; i++) {
+			final double[] v = new double[4];
+			for (int k = 0; k < 4; k++) {
+				final int pick = rand.nextInt(64);
+				if (pick == 0)
+					v[k] = EDGES[rand.nextInt(EDGES.length)];
+				else if (pick == 1)
+					v[k] = (rand.nextInt(20000000) - 10000000) / 1000.0 + 0.0005;
+				else
+					v[k] = (rand.nextDouble() - 0.5) * 2 * 9000;
+			}
+			
+			Body bod = new Body(1, 20, new Point.Double(v[2], v[3]),
+			        new Point.Double(v[0], v[1]), i, 1);
+			bod.attach(s);
+			bodies.add(bod);
+		}
+		
+		return bodies;
+	}
+	
+	
+	
+	/*
+	 * the former FreeBodies.writeToFile
+	 */
+	private static void writeFormatted(String name, ArrayList<Body> bodies)
+	        throws IOException {
+		
+		BufferedWriter bw = new BufferedWriter(new FileWriter(name));
+		
+		for (Body body : bodies) {
+			StringBuilder line = new StringBuilder();
+			line.append(String.format("%2d", body.getID()));
+			line.append(": Position (");
+			line.append(String.format("%+09.3f", body.getPosition().x));
+			line.append(",");
+			line.append(String.format("%+09.3f", body.getPosition().y));
+			line.append("), Velocity (");
+			line.append(String.format("%+09.3f", body.getVelocity().x));
+			line.append(",");
+			line.append(String.format("%+09.3f", body.getVelocity().y));
+			line.append(")\n");
+			
+			bw.write(line.toString());
+		}
+		
+		bw.close();
+	}
+}
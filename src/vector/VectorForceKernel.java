@@ -0,0 +1,101 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/*
+ * @author Eric M Evans
+ *
+ * direct-sum gravity with the Vector API: each hero meets as many rivals
+ * at once as the preferred vector holds doubles. rival positions, masses
+ * and force rows are contiguous, so they load and store whole vectors;
+ * rivals past the last full vector go through the scalar loop.
+ *
+ * built apart from the other sources, with
+ * --add-modules jdk.incubator.vector, and loaded by GravityKernel.create
+ */
+public class VectorForceKernel implements GravityKernel {
+	
+	// touching this without the module fails the load, not the first step
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+	
+	
+	
+	@Override
+	public void accumulate(BodyStore s, int from, int to, int step, int row,
+	        double G) {
+		
+		final double[] px = s.px;
+		final double[] py = s.py;
+		final double[] mass = s.mass;
+		final double[] forceX = s.forceX[row];
+		final double[] forceY = s.forceY[row];
+		final int n = s.size;
+		final int lanes = SPECIES.length();
+		
+		for (int i = from; i < to; i += step) {
+			final double heroPX = px[i];
+			final double heroPY = py[i];
+			final double heroMass = mass[i];
+			final DoubleVector heroX = DoubleVector.broadcast(SPECIES, heroPX);
+			final DoubleVector heroY = DoubleVector.broadcast(SPECIES, heroPY);
+			final DoubleVector heroG = DoubleVector.broadcast(SPECIES,
+			        G * heroMass);
+			DoubleVector sumX = DoubleVector.zero(SPECIES);
+			DoubleVector sumY = DoubleVector.zero(SPECIES);
+			
+			int k = i + 1;
+			final int bound = k + SPECIES.loopBound(n - k);
+			
+			for (; k < bound; k += lanes) {
+				final DoubleVector directionX = DoubleVector
+				        .fromArray(SPECIES, px, k).sub(heroX);
+				final DoubleVector directionY = DoubleVector
+				        .fromArray(SPECIES, py, k).sub(heroY);
+				
+				final DoubleVector distance = directionX.mul(directionX)
+				        .add(directionY.mul(directionY)).sqrt();
+				final DoubleVector magnitude = heroG
+				        .mul(DoubleVector.fromArray(SPECIES, mass, k))
+				        .div(distance.mul(distance));
+				
+				final DoubleVector fx = magnitude.mul(directionX).div(distance);
+				final DoubleVector fy = magnitude.mul(directionY).div(distance);
+				
+				sumX = sumX.add(fx);
+				sumY = sumY.add(fy);
+				
+				DoubleVector.fromArray(SPECIES, forceX, k).sub(fx)
+				        .intoArray(forceX, k);
+				DoubleVector.fromArray(SPECIES, forceY, k).sub(fy)
+				        .intoArray(forceY, k);
+			}
+			
+			double heroFX = forceX[i] + sumX.reduceLanes(VectorOperators.ADD);
+			double heroFY = forceY[i] + sumY.reduceLanes(VectorOperators.ADD);
+			
+			for (; k < n; k++) {
+				final double rivalPX = px[k];
+				final double rivalPY = py[k];
+				final double rivalMass = mass[k];
+				
+				final double distance = Math
+				        .sqrt((heroPX - rivalPX) * (heroPX - rivalPX)
+				                + (heroPY - rivalPY) * (heroPY - rivalPY));
+				final double magnitude = (G * heroMass * rivalMass)
+				        / (distance * distance);
+				
+				final double directionX = rivalPX - heroPX;
+				final double directionY = rivalPY - heroPY;
+				
+				heroFX = heroFX + magnitude * directionX / distance;
+				heroFY = heroFY + magnitude * directionY / distance;
+				
+				forceX[k] -= magnitude * directionX / distance;
+				forceY[k] -= magnitude * directionY / distance;
+			}
+			
+			forceX[i] = heroFX;
+			forceY[i] = heroFY;
+		}
+	}
+}